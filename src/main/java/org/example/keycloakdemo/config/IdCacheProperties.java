@@ -0,0 +1,61 @@
+package org.example.keycloakdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "keycloak.id-cache")
+public class IdCacheProperties {
+
+    private boolean enabled = false;
+    private String directory = "./id-cache";
+    private Duration userTtl = Duration.ofHours(24);
+    private Duration groupTtl = Duration.ofHours(24);
+
+    public IdCacheProperties() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public Duration getUserTtl() {
+        return userTtl;
+    }
+
+    public void setUserTtl(Duration userTtl) {
+        this.userTtl = userTtl;
+    }
+
+    public Duration getGroupTtl() {
+        return groupTtl;
+    }
+
+    public void setGroupTtl(Duration groupTtl) {
+        this.groupTtl = groupTtl;
+    }
+
+    @Override
+    public String toString() {
+        return "IdCacheProperties{" +
+                "enabled=" + enabled +
+                ", directory='" + directory + '\'' +
+                ", userTtl=" + userTtl +
+                ", groupTtl=" + groupTtl +
+                '}';
+    }
+}
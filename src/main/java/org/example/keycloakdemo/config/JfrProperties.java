@@ -0,0 +1,52 @@
+package org.example.keycloakdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "keycloak.jfr")
+public class JfrProperties {
+
+    private String settings = "default";
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+    private Duration maxDuration = Duration.ofMinutes(10);
+
+    public JfrProperties() {
+    }
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Duration getMaxDuration() {
+        return maxDuration;
+    }
+
+    public void setMaxDuration(Duration maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "JfrProperties{" +
+                "settings='" + settings + '\'' +
+                ", maxSize=" + maxSize +
+                ", maxDuration=" + maxDuration +
+                '}';
+    }
+}
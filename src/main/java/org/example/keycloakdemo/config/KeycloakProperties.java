@@ -12,6 +12,13 @@ public class KeycloakProperties {
     private String clientId;
     private String adminUsername;
     private String adminPassword;
+    private String grantType = "password";
+    private String clientSecret;
+    private String clientAuthentication = "secret";
+    private String clientAssertionKey;
+    private String clientAssertionKeyId;
+    private int bulkConcurrency = 8;
+    private String clientMode = "reactive";
 
     public KeycloakProperties() {
     }
@@ -64,6 +71,62 @@ public class KeycloakProperties {
         this.adminPassword = adminPassword;
     }
 
+    public String getGrantType() {
+        return grantType;
+    }
+
+    public void setGrantType(String grantType) {
+        this.grantType = grantType;
+    }
+
+    public String getClientSecret() {
+        return clientSecret;
+    }
+
+    public void setClientSecret(String clientSecret) {
+        this.clientSecret = clientSecret;
+    }
+
+    public String getClientAuthentication() {
+        return clientAuthentication;
+    }
+
+    public void setClientAuthentication(String clientAuthentication) {
+        this.clientAuthentication = clientAuthentication;
+    }
+
+    public String getClientAssertionKey() {
+        return clientAssertionKey;
+    }
+
+    public void setClientAssertionKey(String clientAssertionKey) {
+        this.clientAssertionKey = clientAssertionKey;
+    }
+
+    public String getClientAssertionKeyId() {
+        return clientAssertionKeyId;
+    }
+
+    public void setClientAssertionKeyId(String clientAssertionKeyId) {
+        this.clientAssertionKeyId = clientAssertionKeyId;
+    }
+
+    public int getBulkConcurrency() {
+        return bulkConcurrency;
+    }
+
+    public void setBulkConcurrency(int bulkConcurrency) {
+        this.bulkConcurrency = bulkConcurrency;
+    }
+
+    public String getClientMode() {
+        return clientMode;
+    }
+
+    public void setClientMode(String clientMode) {
+        this.clientMode = clientMode;
+    }
+
     @Override
     public String toString() {
         return "KeycloakProperties{" +
@@ -72,6 +135,13 @@ public class KeycloakProperties {
                 ", clientId='" + clientId + '\'' +
                 ", adminUsername='" + adminUsername + '\'' +
                 ", adminPassword='" + adminPassword + '\'' +
+                ", grantType='" + grantType + '\'' +
+                ", clientSecret='" + (clientSecret == null ? null : "****") + '\'' +
+                ", clientAuthentication='" + clientAuthentication + '\'' +
+                ", clientAssertionKey='" + clientAssertionKey + '\'' +
+                ", clientAssertionKeyId='" + clientAssertionKeyId + '\'' +
+                ", bulkConcurrency=" + bulkConcurrency +
+                ", clientMode='" + clientMode + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,98 @@
+package org.example.keycloakdemo.config;
+
+import org.example.keycloakdemo.service.WorkloadClass;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "keycloak.scheduler")
+public class SchedulerProperties {
+
+    private boolean enabled = true;
+    private int maxConcurrency = 16;
+    private Map<WorkloadClass, WorkloadLimits> classes = new EnumMap<>(Map.of(
+            WorkloadClass.INTERACTIVE, new WorkloadLimits(8, 16),
+            WorkloadClass.BULK, new WorkloadLimits(3, 10),
+            WorkloadClass.BACKGROUND, new WorkloadLimits(1, 2)));
+
+    public SchedulerProperties() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Map<WorkloadClass, WorkloadLimits> getClasses() {
+        return classes;
+    }
+
+    public void setClasses(Map<WorkloadClass, WorkloadLimits> classes) {
+        this.classes = classes;
+    }
+
+    public WorkloadLimits limits(WorkloadClass workloadClass) {
+        return classes.getOrDefault(workloadClass, new WorkloadLimits());
+    }
+
+    @Override
+    public String toString() {
+        return "SchedulerProperties{" +
+                "enabled=" + enabled +
+                ", maxConcurrency=" + maxConcurrency +
+                ", classes=" + classes +
+                '}';
+    }
+
+    public static class WorkloadLimits {
+
+        private int weight = 1;
+        private int maxConcurrency = 1;
+
+        public WorkloadLimits() {
+        }
+
+        public WorkloadLimits(int weight, int maxConcurrency) {
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        @Override
+        public String toString() {
+            return "WorkloadLimits{" +
+                    "weight=" + weight +
+                    ", maxConcurrency=" + maxConcurrency +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.keycloakdemo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "keycloak.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = true;
+    private int connections = 4;
+    private int requests = 20;
+    private Duration timeout = Duration.ofSeconds(30);
+
+    public WarmupProperties() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    public void setRequests(int requests) {
+        this.requests = requests;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmupProperties{" +
+                "enabled=" + enabled +
+                ", connections=" + connections +
+                ", requests=" + requests +
+                ", timeout=" + timeout +
+                '}';
+    }
+}
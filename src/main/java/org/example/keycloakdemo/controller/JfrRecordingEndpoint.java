@@ -0,0 +1,184 @@
+package org.example.keycloakdemo.controller;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.example.keycloakdemo.config.JfrProperties;
+import org.example.keycloakdemo.service.KeycloakCallEvent;
+import org.example.keycloakdemo.service.KeycloakRetryEvent;
+import org.example.keycloakdemo.service.KeycloakTokenEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint to start, stop and download one bounded JDK Flight Recorder recording, including the
+ * Keycloak call, token and retry events.
+ * <ul>
+ *     <li>{@code GET /actuator/jfr}: state of the current recording</li>
+ *     <li>{@code POST /actuator/jfr/start}, {@code POST /actuator/jfr/stop}</li>
+ *     <li>{@code GET /actuator/jfr/recording}: the recording as a {@code .jfr} file</li>
+ * </ul>
+ * A recording stops by itself after {@code keycloak.jfr.max-duration} and never keeps more than
+ * {@code keycloak.jfr.max-size} on disk. The endpoint is disabled and unexposed by default, and the bean only exists
+ * once it is enabled, exposed, and the management server listens on its own port bound to a loopback address
+ * ({@code management.server.port} and {@code management.server.address}), since recordings contain usernames
+ * and group names and the operations are not otherwise authenticated.
+ */
+@Component
+@ConditionalOnAvailableEndpoint(endpoint = JfrRecordingEndpoint.class)
+@Conditional(JfrRecordingEndpoint.OnLoopbackManagementServer.class)
+@WebEndpoint(id = "jfr", enableByDefault = false)
+public class JfrRecordingEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrRecordingEndpoint.class);
+
+    private final JfrProperties jfrProperties;
+    private Recording recording;
+    private Path lastDump;
+
+    public JfrRecordingEndpoint(JfrProperties jfrProperties) {
+        this.jfrProperties = jfrProperties;
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("state", recording.getState());
+        status.put("startTime", recording.getStartTime());
+        status.put("stopTime", recording.getStopTime());
+        status.put("maxDuration", recording.getDuration());
+        status.put("maxSize", recording.getMaxSize());
+        status.put("size", recording.getSize());
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> control(@Selector String action) {
+        return switch (action) {
+            case "start" -> start();
+            case "stop" -> stop();
+            default -> new WebEndpointResponse<>(Map.of("error", "Unknown action: " + action), WebEndpointResponse.STATUS_BAD_REQUEST);
+        };
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> download(@Selector String name) {
+        if (!"recording".equals(name) || recording == null || recording.getState() == RecordingState.NEW) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        try {
+            deleteLastDump();
+            lastDump = Files.createTempFile("keycloak-demo-", ".jfr");
+            recording.dump(lastDump);
+            return new WebEndpointResponse<>(new FileSystemResource(lastDump));
+        } catch (IOException e) {
+            logger.warn("Unable to write JFR recording: {}", e.getMessage());
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        deleteLastDump();
+    }
+
+    private WebEndpointResponse<Map<String, Object>> start() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(Map.of("error", "A recording is already running."), 409);
+        }
+        try {
+            Configuration configuration = Configuration.getConfiguration(jfrProperties.getSettings());
+            if (recording != null) {
+                recording.close();
+            }
+            recording = new Recording(configuration);
+            recording.setName("keycloak-demo");
+            recording.setToDisk(true);
+            recording.setMaxSize(jfrProperties.getMaxSize().toBytes());
+            recording.setDuration(jfrProperties.getMaxDuration());
+            recording.enable(KeycloakCallEvent.class);
+            recording.enable(KeycloakTokenEvent.class);
+            recording.enable(KeycloakRetryEvent.class);
+            recording.start();
+            logger.info("Started JFR recording with '{}' settings for at most {}", jfrProperties.getSettings(), jfrProperties.getMaxDuration());
+            return new WebEndpointResponse<>(status());
+        } catch (IOException | ParseException e) {
+            return new WebEndpointResponse<>(Map.of("error", "Unknown JFR settings: " + jfrProperties.getSettings()), WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+    }
+
+    private WebEndpointResponse<Map<String, Object>> stop() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(Map.of("error", "No recording is running."), 409);
+        }
+        recording.stop();
+        logger.info("Stopped JFR recording ({} bytes)", recording.getSize());
+        return new WebEndpointResponse<>(status());
+    }
+
+    private void deleteLastDump() {
+        if (lastDump == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(lastDump);
+        } catch (IOException e) {
+            logger.warn("Unable to delete {}: {}", lastDump, e.getMessage());
+        }
+        lastDump = null;
+    }
+
+    static class OnLoopbackManagementServer extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            Environment environment = context.getEnvironment();
+            String port = environment.getProperty("management.server.port");
+            String address = environment.getProperty("management.server.address");
+            if (!StringUtils.hasText(port) || !StringUtils.hasText(address)) {
+                return ConditionOutcome.noMatch("management.server.port and management.server.address are not both set");
+            }
+            try {
+                return InetAddress.getByName(address).isLoopbackAddress()
+                        ? ConditionOutcome.match("management server is bound to loopback address " + address)
+                        : ConditionOutcome.noMatch("management.server.address " + address + " is not a loopback address");
+            } catch (UnknownHostException e) {
+                return ConditionOutcome.noMatch("management.server.address " + address + " cannot be resolved");
+            }
+        }
+    }
+}
@@ -3,37 +3,45 @@ package org.example.keycloakdemo.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.example.keycloakdemo.model.BulkMembershipResponse;
+import org.example.keycloakdemo.model.DesiredState;
+import org.example.keycloakdemo.model.DesiredUser;
+import org.example.keycloakdemo.model.GroupMembersRequest;
+import org.example.keycloakdemo.model.IdLookupRequest;
+import org.example.keycloakdemo.model.IdLookupResponse;
+import org.example.keycloakdemo.model.ReconcileResponse;
 import org.example.keycloakdemo.model.UserGroupRequest;
+import org.example.keycloakdemo.model.UserGroupsRequest;
 import org.example.keycloakdemo.model.UserSearchRequest;
 import org.example.keycloakdemo.model.UserSearchResponse;
-import org.example.keycloakdemo.service.KeyCloakService;
+import org.example.keycloakdemo.service.GroupMembershipService;
+import org.example.keycloakdemo.service.ReconciliationService;
+import org.example.keycloakdemo.service.UserProvisioningService;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 @RestController
 @RequestMapping("/api/keycloak/v1")
 @Tag(name = "Keycloak API", description = "API for managing users and groups in Keycloak")
 public class KeyCloakController {
 
-    private static final Logger logger = Logger.getLogger(KeyCloakController.class.getName());
-    private final KeyCloakService keyCloakService;
-    private static final String EMAIL_REGEX = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
-    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX);
+    private final UserProvisioningService userProvisioningService;
+    private final GroupMembershipService groupMembershipService;
+    private final ReconciliationService reconciliationService;
 
-    public KeyCloakController(KeyCloakService keyCloakService) {
-        this.keyCloakService = keyCloakService;
+    public KeyCloakController(UserProvisioningService userProvisioningService, GroupMembershipService groupMembershipService,
+                              ReconciliationService reconciliationService) {
+        this.userProvisioningService = userProvisioningService;
+        this.groupMembershipService = groupMembershipService;
+        this.reconciliationService = reconciliationService;
     }
 
     @PostMapping("/users/create-and-assign-group")
@@ -45,52 +53,7 @@ public class KeyCloakController {
     public Mono<String> createUserAndAssignGroup(
             @Parameter(description = "User and group information") @RequestBody UserGroupRequest userGroupRequest) {
 
-        validateRequest(userGroupRequest);
-
-        String username = userGroupRequest.getUsername();
-        String email = userGroupRequest.getEmail();
-        String groupName = userGroupRequest.getGroupName();
-
-        return keyCloakService.getKeycloakToken()
-                .flatMap(token ->
-                        // Step 1: Check if the user exists
-                        keyCloakService.getUserId(token, username)
-                                .flatMap(userId ->
-                                        // Step 2: Check if the group exists
-                                        keyCloakService.getGroupId(token, groupName)
-                                                .flatMap(groupId ->
-                                                        // If the group exists, assign the user to the group
-                                                        keyCloakService.assignUserToGroup(userId, groupId, token)
-                                                                .then(Mono.just("User with ID: " + userId + " assigned to existing group with ID: " + groupId + "."))
-                                                )
-                                                .switchIfEmpty(
-                                                        // If the group does not exist, create it
-                                                        keyCloakService.createGroup(groupName, token)
-                                                                .then(
-                                                                        // Step 3: Get the new group ID
-                                                                        keyCloakService.getGroupId(token, groupName)
-                                                                )
-                                                                .flatMap(groupId ->
-                                                                        // Step 4: Assign the user to the new group
-                                                                        keyCloakService.assignUserToGroup(userId, groupId, token)
-                                                                                .then(Mono.just("User with ID: " + userId + " created group with ID: " + groupId + "."))
-                                                                )
-                                                )
-                                )
-                                .switchIfEmpty(
-                                        // If the user does not exist, create the user and group
-                                        keyCloakService.createUser(username, email, token)
-                                                .then(keyCloakService.createGroup(groupName, token))
-                                                .then(keyCloakService.getUserId(token, username))
-                                                .flatMap(userId ->
-                                                        keyCloakService.getGroupId(token, groupName)
-                                                                .flatMap(groupId ->
-                                                                        keyCloakService.assignUserToGroup(userId, groupId, token)
-                                                                                .then(Mono.just("User created with ID: " + userId + " and assigned to group with ID: " + groupId + "."))
-                                                                )
-                                                )
-                                )
-                )
+        return userProvisioningService.createUserAndAssignGroup(userGroupRequest)
                 .onErrorResume(this::handleErrors);
     }
 
@@ -104,45 +67,103 @@ public class KeyCloakController {
             @Parameter(description = "Username to search the user") @RequestBody UserSearchRequest userSearchRequest
     ) {
 
-        if (userSearchRequest.getUsername() == null || userSearchRequest.getUsername().isEmpty()) {
-            throw new IllegalArgumentException("Username is required for searching.");
+        return userProvisioningService.searchUser(userSearchRequest.getUsername());
+    }
+
+    @PostMapping("/groups/members")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(
+            summary = "Add or Remove Many Users in a Group (v1)",
+            description = "Adds or removes a list of users to or from one group and returns the outcome for every user."
+    )
+    public Mono<BulkMembershipResponse> updateGroupMembers(
+            @Parameter(description = "Group name, usernames and action") @RequestBody GroupMembersRequest groupMembersRequest) {
+
+        if (groupMembersRequest.getGroupName() == null || groupMembersRequest.getGroupName().isEmpty()) {
+            throw new IllegalArgumentException("Group name is required.");
+        }
+        if (groupMembersRequest.getUsernames() == null || groupMembersRequest.getUsernames().isEmpty()) {
+            throw new IllegalArgumentException("At least one username is required.");
+        }
+        if (groupMembersRequest.getAction() == null) {
+            throw new IllegalArgumentException("Action is required.");
         }
 
-        return keyCloakService.getKeycloakToken()
-                .flatMap(token -> keyCloakService.searchUser(token, userSearchRequest.getUsername()))
-                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found in test realm")));
+        return groupMembershipService.updateGroupMembers(
+                        groupMembersRequest.getGroupName(), groupMembersRequest.getUsernames(), groupMembersRequest.getAction())
+                .onErrorResume(this::handleErrors);
     }
 
-    private void validateRequest(UserGroupRequest userGroupRequest) {
-        if (userGroupRequest.getUsername() == null || userGroupRequest.getUsername().isEmpty()) {
+    @PostMapping("/users/groups")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(
+            summary = "Add or Remove a User in Many Groups (v1)",
+            description = "Adds or removes one user to or from a list of groups and returns the outcome for every group."
+    )
+    public Mono<BulkMembershipResponse> updateUserGroups(
+            @Parameter(description = "Username, group names and action") @RequestBody UserGroupsRequest userGroupsRequest) {
+
+        if (userGroupsRequest.getUsername() == null || userGroupsRequest.getUsername().isEmpty()) {
             throw new IllegalArgumentException("Username is required.");
         }
-        if (userGroupRequest.getEmail() == null || !isValidEmail(userGroupRequest.getEmail())) {
-            throw new IllegalArgumentException("Valid email is required.");
+        if (userGroupsRequest.getGroupNames() == null || userGroupsRequest.getGroupNames().isEmpty()) {
+            throw new IllegalArgumentException("At least one group name is required.");
         }
-        if (userGroupRequest.getGroupName() == null || userGroupRequest.getGroupName().isEmpty()) {
-            throw new IllegalArgumentException("Group name is required.");
+        if (userGroupsRequest.getAction() == null) {
+            throw new IllegalArgumentException("Action is required.");
         }
+
+        return groupMembershipService.updateUserGroups(
+                        userGroupsRequest.getUsername(), userGroupsRequest.getGroupNames(), userGroupsRequest.getAction())
+                .onErrorResume(this::handleErrors);
     }
 
-    private boolean isValidEmail(String email) {
-        if (email == null || email.isEmpty()) {
-            return false;
+    @PostMapping("/ids/lookup")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(
+            summary = "Look Up Many User and Group IDs (v1)",
+            description = "Resolves a list of usernames and/or group names to their Keycloak IDs in a single request."
+    )
+    public Mono<IdLookupResponse> lookupIds(
+            @Parameter(description = "Usernames and group names to resolve") @RequestBody IdLookupRequest idLookupRequest) {
+
+        return userProvisioningService.lookupIds(idLookupRequest)
+                .onErrorResume(this::handleErrors);
+    }
+
+    @PostMapping("/reconcile")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(
+            summary = "Reconcile Users and Groups with a Desired State (v1)",
+            description = "Creates missing groups and users, updates emails and adds missing group memberships so the realm matches the given document. With dryRun=true only the plan is returned."
+    )
+    public Mono<ReconcileResponse> reconcile(
+            @Parameter(description = "Desired users, emails and group memberships") @RequestBody DesiredState desiredState,
+            @Parameter(description = "Only compute and return the plan") @RequestParam(defaultValue = "false") boolean dryRun) {
+
+        if (desiredState == null || desiredState.getUsers() == null) {
+            throw new IllegalArgumentException("A list of users is required.");
+        }
+        for (DesiredUser user : desiredState.getUsers()) {
+            if (user != null && user.getEmail() != null && !UserProvisioningService.isValidEmail(user.getEmail())) {
+                throw new IllegalArgumentException("Invalid email for user: " + user.getUsername());
+            }
         }
 
-        Matcher matcher = EMAIL_PATTERN.matcher(email);
-        return matcher.matches();
+        return reconciliationService.reconcile(desiredState, dryRun)
+                .onErrorResume(this::handleErrors);
     }
 
-    private Mono<String> handleErrors(Throwable throwable) {
-        logger.log(Level.WARNING, "Error occurred: ", throwable);
+    /**
+     * Errors already carrying a status (Keycloak errors, validation errors) pass through unchanged and are
+     * rendered by {@link org.example.keycloakdemo.handler.GlobalExceptionHandler}; logging happens once, where
+     * the error is raised.
+     */
+    private <T> Mono<T> handleErrors(Throwable throwable) {
         if (throwable instanceof WebClientResponseException webClientException) {
-            return Mono.error(new ResponseStatusException(webClientException.getStatusCode(), "Keycloak API error: " + webClientException.getMessage()));
-        } else if (throwable instanceof IllegalArgumentException) {
-            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, throwable.getMessage()));
-        } else {
-            return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred: " + throwable.getMessage()));
+            return Mono.error(new ResponseStatusException(webClientException.getStatusCode(), "Keycloak API error: " + webClientException.getStatusText()));
         }
+        return Mono.error(throwable);
     }
 
 }
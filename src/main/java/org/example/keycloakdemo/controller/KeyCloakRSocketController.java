@@ -0,0 +1,96 @@
+package org.example.keycloakdemo.controller;
+
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.model.IdLookupEntry;
+import org.example.keycloakdemo.model.IdLookupRequest;
+import org.example.keycloakdemo.model.IdLookupResponse;
+import org.example.keycloakdemo.model.ProvisioningResult;
+import org.example.keycloakdemo.model.UserGroupRequest;
+import org.example.keycloakdemo.model.UserSearchRequest;
+import org.example.keycloakdemo.model.UserSearchResponse;
+import org.example.keycloakdemo.service.KeyCloakService;
+import org.example.keycloakdemo.service.UserProvisioningService;
+import org.example.keycloakdemo.service.WorkloadClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * RSocket (TCP, CBOR by default) counterpart of {@link KeyCloakController} for internal callers that keep a
+ * connection open instead of paying for an HTTP request per operation. Routes share the service layer with
+ * the HTTP endpoints.
+ * <ul>
+ *     <li>{@code users.create-and-assign-group}, {@code users.search}, {@code ids.lookup}: request-response</li>
+ *     <li>{@code ids.lookup.stream}: request-stream, one {@link IdLookupEntry} per name</li>
+ *     <li>{@code users.create-and-assign-group.channel}: request-channel, one {@link ProvisioningResult} per request</li>
+ * </ul>
+ * Streams honour the requester's demand: inbound requests are only pulled, and Keycloak calls only started,
+ * as fast as results are consumed.
+ */
+@Controller
+public class KeyCloakRSocketController {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyCloakRSocketController.class);
+
+    /**
+     * How long a channel reuses one admin token before fetching a new one; well below Keycloak's default
+     * access token lifespan of one minute.
+     */
+    private static final Duration CHANNEL_TOKEN_TTL = Duration.ofSeconds(30);
+
+    private final KeyCloakService keyCloakService;
+    private final UserProvisioningService userProvisioningService;
+    private final KeycloakProperties keycloakProperties;
+
+    public KeyCloakRSocketController(KeyCloakService keyCloakService, UserProvisioningService userProvisioningService,
+                                     KeycloakProperties keycloakProperties) {
+        this.keyCloakService = keyCloakService;
+        this.userProvisioningService = userProvisioningService;
+        this.keycloakProperties = keycloakProperties;
+    }
+
+    @MessageMapping("users.create-and-assign-group")
+    public Mono<String> createUserAndAssignGroup(UserGroupRequest userGroupRequest) {
+        return userProvisioningService.createUserAndAssignGroup(userGroupRequest);
+    }
+
+    /**
+     * Provisions a stream of users with at most {@code keycloak.bulk-concurrency} in flight. A failure is
+     * reported in that request's result and never terminates the channel.
+     */
+    @MessageMapping("users.create-and-assign-group.channel")
+    public Flux<ProvisioningResult> createUsersAndAssignGroups(Flux<UserGroupRequest> userGroupRequests) {
+        Mono<String> token = keyCloakService.getKeycloakToken()
+                .cache(value -> CHANNEL_TOKEN_TTL, error -> Duration.ZERO, () -> Duration.ZERO);
+
+        return userGroupRequests
+                .flatMap(request -> Mono.fromRunnable(() -> UserProvisioningService.validateRequest(request))
+                        .then(token)
+                        .flatMap(value -> userProvisioningService.createUserAndAssignGroup(value, request))
+                        .map(message -> new ProvisioningResult(request.getUsername(), request.getGroupName(), true, message))
+                        .onErrorResume(error -> Mono.just(new ProvisioningResult(request.getUsername(), request.getGroupName(), false, error.getMessage()))),
+                        Math.max(1, keycloakProperties.getBulkConcurrency()))
+                .doOnComplete(() -> logger.debug("Provisioning channel completed"))
+                .contextWrite(WorkloadClass.BULK.context());
+    }
+
+    @MessageMapping("users.search")
+    public Mono<UserSearchResponse> searchUser(UserSearchRequest userSearchRequest) {
+        return userProvisioningService.searchUser(userSearchRequest.getUsername());
+    }
+
+    @MessageMapping("ids.lookup")
+    public Mono<IdLookupResponse> lookupIds(IdLookupRequest idLookupRequest) {
+        return userProvisioningService.lookupIds(idLookupRequest);
+    }
+
+    @MessageMapping("ids.lookup.stream")
+    public Flux<IdLookupEntry> streamIds(IdLookupRequest idLookupRequest) {
+        return userProvisioningService.streamIds(idLookupRequest);
+    }
+}
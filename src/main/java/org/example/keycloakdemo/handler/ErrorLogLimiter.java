@@ -0,0 +1,79 @@
+package org.example.keycloakdemo.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs errors at most once per {@link #WINDOW_NANOS} for each distinct (operation, status, error code),
+ * reporting how many identical errors were suppressed in between. Keeps a Keycloak brownout from
+ * turning into a logging storm.
+ * <p>
+ * Expected outcomes (404/409) are logged at DEBUG, other Keycloak errors at WARN and unexpected
+ * exceptions at ERROR with their stack trace.
+ */
+@Component
+public class ErrorLogLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErrorLogLimiter.class);
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int MAX_KEYS = 1024;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public void log(String operation, Throwable error) {
+        if (error instanceof KeycloakException keycloakException) {
+            if (keycloakException.isExpected()) {
+                logger.debug("{}", keycloakException.getMessage());
+                return;
+            }
+            String key = operation + '|' + keycloakException.getStatus() + '|' + keycloakException.getErrorCode();
+            long suppressed = admit(key);
+            if (suppressed >= 0) {
+                logger.warn("{} (body: {}){}", keycloakException.getMessage(), keycloakException.getBodyExcerpt(), suffix(suppressed));
+            }
+            return;
+        }
+
+        String key = operation + '|' + error.getClass().getName();
+        long suppressed = admit(key);
+        if (suppressed >= 0) {
+            logger.error("Error in {}: {}{}", operation, error.toString(), suffix(suppressed), error);
+        }
+    }
+
+    /**
+     * Returns the number of suppressed occurrences if this one should be logged, or -1 to drop it.
+     */
+    private long admit(String key) {
+        if (windows.size() > MAX_KEYS) {
+            windows.clear();
+        }
+        Window window = windows.computeIfAbsent(key, k -> new Window());
+        long now = System.nanoTime();
+        long last = window.lastLogged.get();
+        if (last != 0 && now - last < WINDOW_NANOS) {
+            window.suppressed.incrementAndGet();
+            return -1;
+        }
+        if (!window.lastLogged.compareAndSet(last, now)) {
+            window.suppressed.incrementAndGet();
+            return -1;
+        }
+        return window.suppressed.getAndSet(0);
+    }
+
+    private static String suffix(long suppressed) {
+        return suppressed > 0 ? " [" + suppressed + " similar errors suppressed]" : "";
+    }
+
+    private static final class Window {
+        private final AtomicLong lastLogged = new AtomicLong();
+        private final AtomicLong suppressed = new AtomicLong();
+    }
+}
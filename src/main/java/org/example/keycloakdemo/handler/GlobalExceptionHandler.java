@@ -1,65 +1,86 @@
 package org.example.keycloakdemo.handler;
 
-import jakarta.servlet.http.HttpServletRequest;
-import org.example.keycloakdemo.service.KeyCloakService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import java.util.Date;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.time.Instant;
 
-@ControllerAdvice
+/**
+ * Maps exceptions to RFC 7807 {@link ProblemDetail} responses.
+ * <p>
+ * The handlers take no servlet or exchange arguments, so they apply unchanged to Spring MVC and WebFlux;
+ * the framework fills in {@code instance} with the request path. Keycloak errors have already been logged
+ * where they were raised and are not logged again here.
+ */
+@RestControllerAdvice
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
-    @ExceptionHandler(IllegalArgumentException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public Map<String, Object> handleIllegalArgumentException(IllegalArgumentException ex, HttpServletRequest request) {
-        logger.warn("Validation error at {}: {}", request.getRequestURI(), ex.getMessage());
-        return createErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST, request);
+    private final ErrorLogLimiter errorLog;
+
+    public GlobalExceptionHandler(ErrorLogLimiter errorLog) {
+        this.errorLog = errorLog;
     }
 
-    @ExceptionHandler(Exception.class)
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    public Map<String, Object> handleException(Exception ex, HttpServletRequest request) {
-        logger.error("Unexpected error at {}: {}", request.getRequestURI(), ex.getMessage(), ex);
-        return createErrorResponse("An unexpected error occurred. Please try again later.", HttpStatus.INTERNAL_SERVER_ERROR, request);
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ProblemDetail> handleIllegalArgumentException(IllegalArgumentException ex) {
+        logger.debug("Validation error: {}", ex.getMessage());
+        return problem(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
     @ExceptionHandler(UserNotFoundException.class)
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    public Map<String, Object> handleUserNotFoundException(UserNotFoundException ex, HttpServletRequest request) {
-        logger.warn("User not found at {}: {}", request.getRequestURI(), ex.getMessage());
-        return createErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND, request);
+    public ResponseEntity<ProblemDetail> handleUserNotFoundException(UserNotFoundException ex) {
+        return problem(HttpStatus.NOT_FOUND, ex.getMessage());
     }
 
     @ExceptionHandler(GroupNotFoundException.class)
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    public Map<String, Object> handleGroupNotFoundException(GroupNotFoundException ex, HttpServletRequest request) {
-        logger.warn("Group not found at {}: {}", request.getRequestURI(), ex.getMessage());
-        return createErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND, request);
+    public ResponseEntity<ProblemDetail> handleGroupNotFoundException(GroupNotFoundException ex) {
+        return problem(HttpStatus.NOT_FOUND, ex.getMessage());
     }
 
+    /**
+     * 404 and 409 from Keycloak are passed on as-is; every other Keycloak failure is a 502, since the
+     * problem lies with the upstream call rather than with the client's request.
+     */
     @ExceptionHandler(KeycloakException.class)
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    public Map<String, Object> handleKeycloakException(KeycloakException ex, HttpServletRequest request) {
-        logger.error("Keycloak error at {}: {}", request.getRequestURI(), ex.getMessage());
-        return createErrorResponse(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR, request);
+    public ResponseEntity<ProblemDetail> handleKeycloakException(KeycloakException ex) {
+        HttpStatus status = ex.isExpected() ? HttpStatus.valueOf(ex.getStatus()) : HttpStatus.BAD_GATEWAY;
+        ResponseEntity<ProblemDetail> response = problem(status, ex.getMessage());
+        ProblemDetail body = response.getBody();
+        body.setProperty("operation", ex.getOperation());
+        body.setProperty("keycloakStatus", ex.getStatus());
+        if (ex.getErrorCode() != null) {
+            body.setProperty("keycloakError", ex.getErrorCode());
+        }
+        return response;
+    }
+
+    /**
+     * Framework and {@code ResponseStatusException} errors already describe themselves as a
+     * {@link ErrorResponse} and keep their own status; anything else is an unexpected 500.
+     */
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ProblemDetail> handleException(Exception ex) {
+        if (ex instanceof ErrorResponse errorResponse) {
+            ProblemDetail body = errorResponse.getBody();
+            body.setProperty("timestamp", Instant.now());
+            return ResponseEntity.status(errorResponse.getStatusCode()).headers(errorResponse.getHeaders()).body(body);
+        }
+        errorLog.log("request", ex);
+        return problem(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred. Please try again later.");
     }
 
-    private Map<String, Object> createErrorResponse(String message, HttpStatus status, HttpServletRequest request) {
-        Map<String, Object> errorResponse = new LinkedHashMap<>();
-        errorResponse.put("timestamp", new Date());
-        errorResponse.put("status", status.value());
-        errorResponse.put("error", status.getReasonPhrase());
-        errorResponse.put("message", message);
-        errorResponse.put("path", request.getRequestURI());
-        return errorResponse;
+    private ResponseEntity<ProblemDetail> problem(HttpStatusCode status, String detail) {
+        ProblemDetail body = ProblemDetail.forStatusAndDetail(status, detail);
+        body.setProperty("timestamp", Instant.now());
+        return ResponseEntity.status(status).body(body);
     }
 }
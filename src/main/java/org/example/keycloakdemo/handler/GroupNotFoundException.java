@@ -2,6 +2,6 @@ package org.example.keycloakdemo.handler;
 
 public class GroupNotFoundException extends RuntimeException {
     public GroupNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
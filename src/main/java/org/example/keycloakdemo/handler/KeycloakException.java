@@ -1,7 +1,60 @@
 package org.example.keycloakdemo.handler;
 
+/**
+ * A failed Keycloak admin or token call.
+ * <p>
+ * Expected outcomes (404 and 409) are created without a stack trace: they are frequent, handled as
+ * ordinary results, and a reactive stack trace would not point at anything useful.
+ */
 public class KeycloakException extends RuntimeException {
-    public KeycloakException(String message, Throwable cause) {
-        super(message, cause);
+
+    private final int status;
+    private final String operation;
+    private final String errorCode;
+    private final String bodyExcerpt;
+
+    public KeycloakException(int status, String operation, String errorCode, String bodyExcerpt) {
+        this(describe(status, operation, errorCode), status, operation, errorCode, bodyExcerpt, !isExpected(status));
+    }
+
+    private KeycloakException(String message, int status, String operation, String errorCode,
+                              String bodyExcerpt, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+        this.status = status;
+        this.operation = operation;
+        this.errorCode = errorCode;
+        this.bodyExcerpt = bodyExcerpt;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public String getBodyExcerpt() {
+        return bodyExcerpt;
+    }
+
+    public boolean isExpected() {
+        return isExpected(status);
+    }
+
+    public boolean isRetryable() {
+        return status == 429 || status >= 500;
+    }
+
+    private static boolean isExpected(int status) {
+        return status == 404 || status == 409;
+    }
+
+    private static String describe(int status, String operation, String errorCode) {
+        return "Keycloak " + operation + " failed with status " + status + (errorCode != null ? ": " + errorCode : "");
     }
-}
\ No newline at end of file
+}
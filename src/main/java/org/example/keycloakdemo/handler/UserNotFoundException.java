@@ -2,6 +2,6 @@ package org.example.keycloakdemo.handler;
 
 public class UserNotFoundException extends RuntimeException {
     public UserNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
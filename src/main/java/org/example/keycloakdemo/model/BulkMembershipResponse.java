@@ -0,0 +1,46 @@
+package org.example.keycloakdemo.model;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class BulkMembershipResponse {
+
+    private Map<MembershipOutcome, Long> summary;
+    private List<MembershipResult> results;
+
+    public BulkMembershipResponse() {
+    }
+
+    public BulkMembershipResponse(List<MembershipResult> results) {
+        this.results = results;
+        this.summary = new EnumMap<>(MembershipOutcome.class);
+        for (MembershipResult result : results) {
+            summary.merge(result.getOutcome(), 1L, Long::sum);
+        }
+    }
+
+    public Map<MembershipOutcome, Long> getSummary() {
+        return summary;
+    }
+
+    public void setSummary(Map<MembershipOutcome, Long> summary) {
+        this.summary = summary;
+    }
+
+    public List<MembershipResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<MembershipResult> results) {
+        this.results = results;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkMembershipResponse{" +
+                "summary=" + summary +
+                ", results=" + results +
+                '}';
+    }
+}
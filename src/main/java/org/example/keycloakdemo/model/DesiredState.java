@@ -0,0 +1,33 @@
+package org.example.keycloakdemo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DesiredState {
+
+    private List<DesiredUser> users;
+
+    public DesiredState() {
+    }
+
+    public DesiredState(List<DesiredUser> users) {
+        this.users = users;
+    }
+
+    public List<DesiredUser> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<DesiredUser> users) {
+        this.users = users;
+    }
+
+    @Override
+    public String toString() {
+        return "DesiredState{" +
+                "users=" + users +
+                '}';
+    }
+}
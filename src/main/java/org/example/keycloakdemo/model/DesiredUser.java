@@ -0,0 +1,55 @@
+package org.example.keycloakdemo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DesiredUser {
+
+    private String username;
+    private String email;
+    private List<String> groups;
+
+    public DesiredUser() {
+    }
+
+    public DesiredUser(String username, String email, List<String> groups) {
+        this.username = username;
+        this.email = email;
+        this.groups = groups;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public List<String> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(List<String> groups) {
+        this.groups = groups;
+    }
+
+    @Override
+    public String toString() {
+        return "DesiredUser{" +
+                "username='" + username + '\'' +
+                ", email='" + email + '\'' +
+                ", groups=" + groups +
+                '}';
+    }
+}
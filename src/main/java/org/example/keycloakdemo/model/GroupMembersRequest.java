@@ -0,0 +1,55 @@
+package org.example.keycloakdemo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GroupMembersRequest {
+
+    private String groupName;
+    private List<String> usernames;
+    private MembershipAction action = MembershipAction.ADD;
+
+    public GroupMembersRequest() {
+    }
+
+    public GroupMembersRequest(String groupName, List<String> usernames, MembershipAction action) {
+        this.groupName = groupName;
+        this.usernames = usernames;
+        this.action = action;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public List<String> getUsernames() {
+        return usernames;
+    }
+
+    public void setUsernames(List<String> usernames) {
+        this.usernames = usernames;
+    }
+
+    public MembershipAction getAction() {
+        return action;
+    }
+
+    public void setAction(MembershipAction action) {
+        this.action = action;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupMembersRequest{" +
+                "groupName='" + groupName + '\'' +
+                ", usernames=" + usernames +
+                ", action=" + action +
+                '}';
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.keycloakdemo.model;
+
+public class IdLookupEntry {
+
+    private IdLookupKind kind;
+    private String name;
+    private String id;
+    private String error;
+
+    public IdLookupEntry() {
+    }
+
+    public IdLookupEntry(IdLookupKind kind, String name, String id) {
+        this(kind, name, id, null);
+    }
+
+    public IdLookupEntry(IdLookupKind kind, String name, String id, String error) {
+        this.kind = kind;
+        this.name = name;
+        this.id = id;
+        this.error = error;
+    }
+
+    public IdLookupKind getKind() {
+        return kind;
+    }
+
+    public void setKind(IdLookupKind kind) {
+        this.kind = kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * {@code null} when no user or group with this name exists, or when the lookup failed.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Why the lookup failed, or {@code null} when it succeeded.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "IdLookupEntry{" +
+                "kind=" + kind +
+                ", name='" + name + '\'' +
+                ", id='" + id + '\'' +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.keycloakdemo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class IdLookupRequest {
+
+    private List<String> usernames;
+    private List<String> groupNames;
+
+    public IdLookupRequest() {
+    }
+
+    public IdLookupRequest(List<String> usernames, List<String> groupNames) {
+        this.usernames = usernames;
+        this.groupNames = groupNames;
+    }
+
+    public List<String> getUsernames() {
+        return usernames;
+    }
+
+    public void setUsernames(List<String> usernames) {
+        this.usernames = usernames;
+    }
+
+    public List<String> getGroupNames() {
+        return groupNames;
+    }
+
+    public void setGroupNames(List<String> groupNames) {
+        this.groupNames = groupNames;
+    }
+
+    @Override
+    public String toString() {
+        return "IdLookupRequest{" +
+                "usernames=" + usernames +
+                ", groupNames=" + groupNames +
+                '}';
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.keycloakdemo.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class IdLookupResponse {
+
+    private Map<String, String> users;
+    private Map<String, String> groups;
+    private List<String> missingUsers;
+    private List<String> missingGroups;
+    private Map<String, String> failedUsers;
+    private Map<String, String> failedGroups;
+
+    public IdLookupResponse() {
+    }
+
+    public IdLookupResponse(Map<String, String> users, Map<String, String> groups, List<String> missingUsers, List<String> missingGroups,
+                            Map<String, String> failedUsers, Map<String, String> failedGroups) {
+        this.users = users;
+        this.groups = groups;
+        this.missingUsers = missingUsers;
+        this.missingGroups = missingGroups;
+        this.failedUsers = failedUsers;
+        this.failedGroups = failedGroups;
+    }
+
+    public Map<String, String> getUsers() {
+        return users;
+    }
+
+    public void setUsers(Map<String, String> users) {
+        this.users = users;
+    }
+
+    public Map<String, String> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(Map<String, String> groups) {
+        this.groups = groups;
+    }
+
+    public List<String> getMissingUsers() {
+        return missingUsers;
+    }
+
+    public void setMissingUsers(List<String> missingUsers) {
+        this.missingUsers = missingUsers;
+    }
+
+    public List<String> getMissingGroups() {
+        return missingGroups;
+    }
+
+    public void setMissingGroups(List<String> missingGroups) {
+        this.missingGroups = missingGroups;
+    }
+
+    public Map<String, String> getFailedUsers() {
+        return failedUsers;
+    }
+
+    public void setFailedUsers(Map<String, String> failedUsers) {
+        this.failedUsers = failedUsers;
+    }
+
+    public Map<String, String> getFailedGroups() {
+        return failedGroups;
+    }
+
+    public void setFailedGroups(Map<String, String> failedGroups) {
+        this.failedGroups = failedGroups;
+    }
+
+    @Override
+    public String toString() {
+        return "IdLookupResponse{" +
+                "users=" + users +
+                ", groups=" + groups +
+                ", missingUsers=" + missingUsers +
+                ", missingGroups=" + missingGroups +
+                ", failedUsers=" + failedUsers +
+                ", failedGroups=" + failedGroups +
+                '}';
+    }
+}
@@ -0,0 +1,6 @@
+package org.example.keycloakdemo.model;
+
+public enum MembershipAction {
+    ADD,
+    REMOVE
+}
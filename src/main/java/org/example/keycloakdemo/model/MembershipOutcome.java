@@ -0,0 +1,11 @@
+package org.example.keycloakdemo.model;
+
+public enum MembershipOutcome {
+    ADDED,
+    REMOVED,
+    ALREADY_MEMBER,
+    NOT_MEMBER,
+    USER_NOT_FOUND,
+    GROUP_NOT_FOUND,
+    FAILED
+}
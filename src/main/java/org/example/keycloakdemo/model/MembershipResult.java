@@ -0,0 +1,61 @@
+package org.example.keycloakdemo.model;
+
+public class MembershipResult {
+
+    private String username;
+    private String groupName;
+    private MembershipOutcome outcome;
+    private String message;
+
+    public MembershipResult() {
+    }
+
+    public MembershipResult(String username, String groupName, MembershipOutcome outcome, String message) {
+        this.username = username;
+        this.groupName = groupName;
+        this.outcome = outcome;
+        this.message = message;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public MembershipOutcome getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(MembershipOutcome outcome) {
+        this.outcome = outcome;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "MembershipResult{" +
+                "username='" + username + '\'' +
+                ", groupName='" + groupName + '\'' +
+                ", outcome=" + outcome +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.keycloakdemo.model;
+
+public class ProvisioningResult {
+
+    private String username;
+    private String groupName;
+    private boolean success;
+    private String message;
+
+    public ProvisioningResult() {
+    }
+
+    public ProvisioningResult(String username, String groupName, boolean success, String message) {
+        this.username = username;
+        this.groupName = groupName;
+        this.success = success;
+        this.message = message;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "ProvisioningResult{" +
+                "username='" + username + '\'' +
+                ", groupName='" + groupName + '\'' +
+                ", success=" + success +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
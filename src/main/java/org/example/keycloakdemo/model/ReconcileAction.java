@@ -0,0 +1,76 @@
+package org.example.keycloakdemo.model;
+
+public class ReconcileAction {
+
+    private ReconcileActionType type;
+    private String username;
+    private String groupName;
+    private ReconcileActionStatus status;
+    private String message;
+
+    public ReconcileAction() {
+    }
+
+    public ReconcileAction(ReconcileActionType type, String username, String groupName, ReconcileActionStatus status, String message) {
+        this.type = type;
+        this.username = username;
+        this.groupName = groupName;
+        this.status = status;
+        this.message = message;
+    }
+
+    public ReconcileAction withStatus(ReconcileActionStatus status, String message) {
+        return new ReconcileAction(type, username, groupName, status, message);
+    }
+
+    public ReconcileActionType getType() {
+        return type;
+    }
+
+    public void setType(ReconcileActionType type) {
+        this.type = type;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public ReconcileActionStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ReconcileActionStatus status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconcileAction{" +
+                "type=" + type +
+                ", username='" + username + '\'' +
+                ", groupName='" + groupName + '\'' +
+                ", status=" + status +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
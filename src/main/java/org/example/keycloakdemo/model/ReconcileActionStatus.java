@@ -0,0 +1,7 @@
+package org.example.keycloakdemo.model;
+
+public enum ReconcileActionStatus {
+    PLANNED,
+    APPLIED,
+    FAILED
+}
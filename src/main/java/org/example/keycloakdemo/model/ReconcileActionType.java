@@ -0,0 +1,8 @@
+package org.example.keycloakdemo.model;
+
+public enum ReconcileActionType {
+    CREATE_GROUP,
+    CREATE_USER,
+    UPDATE_EMAIL,
+    ADD_MEMBERSHIP
+}
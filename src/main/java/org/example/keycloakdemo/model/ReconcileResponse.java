@@ -0,0 +1,57 @@
+package org.example.keycloakdemo.model;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReconcileResponse {
+
+    private boolean dryRun;
+    private Map<ReconcileActionType, Long> summary;
+    private List<ReconcileAction> actions;
+
+    public ReconcileResponse() {
+    }
+
+    public ReconcileResponse(boolean dryRun, List<ReconcileAction> actions) {
+        this.dryRun = dryRun;
+        this.actions = actions;
+        this.summary = new EnumMap<>(ReconcileActionType.class);
+        for (ReconcileAction action : actions) {
+            summary.merge(action.getType(), 1L, Long::sum);
+        }
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public Map<ReconcileActionType, Long> getSummary() {
+        return summary;
+    }
+
+    public void setSummary(Map<ReconcileActionType, Long> summary) {
+        this.summary = summary;
+    }
+
+    public List<ReconcileAction> getActions() {
+        return actions;
+    }
+
+    public void setActions(List<ReconcileAction> actions) {
+        this.actions = actions;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconcileResponse{" +
+                "dryRun=" + dryRun +
+                ", summary=" + summary +
+                ", actions=" + actions +
+                '}';
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.keycloakdemo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UserGroupsRequest {
+
+    private String username;
+    private List<String> groupNames;
+    private MembershipAction action = MembershipAction.ADD;
+
+    public UserGroupsRequest() {
+    }
+
+    public UserGroupsRequest(String username, List<String> groupNames, MembershipAction action) {
+        this.username = username;
+        this.groupNames = groupNames;
+        this.action = action;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public List<String> getGroupNames() {
+        return groupNames;
+    }
+
+    public void setGroupNames(List<String> groupNames) {
+        this.groupNames = groupNames;
+    }
+
+    public MembershipAction getAction() {
+        return action;
+    }
+
+    public void setAction(MembershipAction action) {
+        this.action = action;
+    }
+
+    @Override
+    public String toString() {
+        return "UserGroupsRequest{" +
+                "username='" + username + '\'' +
+                ", groupNames=" + groupNames +
+                ", action=" + action +
+                '}';
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.keycloakdemo.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Holds the current {@link GroupSnapshot} and swaps it atomically on refresh.
+ * <p>
+ * Concurrent refreshes share one load. A lookup that misses on a snapshot older than
+ * {@code missRefreshAge} triggers a refresh, so groups created outside this application
+ * become visible without waiting for the next scheduled refresh. A load that was started before
+ * {@link #invalidate()} is not published, since it may predate the change that caused the invalidation.
+ * The shared load always runs as {@link WorkloadClass#INTERACTIVE}, since interactive lookups may be waiting on it.
+ */
+class GroupHierarchyCache {
+
+    private final Function<String, Mono<GroupSnapshot>> loader;
+    private final Duration missRefreshAge;
+    private final AtomicReference<GroupSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicReference<Mono<GroupSnapshot>> inflight = new AtomicReference<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    GroupHierarchyCache(Function<String, Mono<GroupSnapshot>> loader, Duration missRefreshAge) {
+        this.loader = loader;
+        this.missRefreshAge = missRefreshAge;
+    }
+
+    Mono<String> findGroupId(String token, String nameOrPath) {
+        return Mono.defer(() -> {
+            GroupSnapshot current = snapshot.get();
+            if (current != null) {
+                String groupId = current.resolve(nameOrPath);
+                if (groupId != null) {
+                    return Mono.just(groupId);
+                }
+                if (current.getLoadedAt().plus(missRefreshAge).isAfter(Instant.now())) {
+                    return Mono.empty();
+                }
+            }
+            return refresh(token).flatMap(fresh -> Mono.justOrEmpty(fresh.resolve(nameOrPath)));
+        });
+    }
+
+    Mono<GroupSnapshot> current(String token) {
+        return Mono.defer(() -> {
+            GroupSnapshot current = snapshot.get();
+            return current != null ? Mono.just(current) : refresh(token);
+        });
+    }
+
+    Mono<GroupSnapshot> refresh(String token) {
+        return Mono.defer(() -> {
+            Mono<GroupSnapshot> running = inflight.get();
+            if (running != null) {
+                return running;
+            }
+            long startedAt = generation.get();
+            AtomicReference<Mono<GroupSnapshot>> self = new AtomicReference<>();
+            Mono<GroupSnapshot> load = loader.apply(token)
+                    // Shared by every waiter, so it must not inherit the (possibly background) class of whoever started it
+                    .contextWrite(WorkloadClass.INTERACTIVE.context())
+                    .doOnNext(loaded -> {
+                        if (generation.get() == startedAt) {
+                            snapshot.set(loaded);
+                        }
+                    })
+                    .doFinally(signal -> inflight.compareAndSet(self.get(), null))
+                    .cache();
+            self.set(load);
+            return inflight.compareAndSet(null, load) ? load : refresh(token);
+        });
+    }
+
+    GroupSnapshot peek() {
+        return snapshot.get();
+    }
+
+    void invalidate() {
+        generation.incrementAndGet();
+        snapshot.set(null);
+        inflight.set(null);
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.keycloakdemo.service;
+
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.model.BulkMembershipResponse;
+import org.example.keycloakdemo.model.MembershipAction;
+import org.example.keycloakdemo.model.MembershipOutcome;
+import org.example.keycloakdemo.model.MembershipResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Applies group membership changes in bulk: one group with many users, or one user with many groups.
+ * IDs are resolved once per request, existing memberships are read once, and only the remaining
+ * PUT/DELETE calls are sent to Keycloak with bounded concurrency. Calls made with a cached user ID go
+ * through {@link KeyCloakService#withUserId}, so a user deleted or recreated since it was cached is
+ * looked up again instead of being reported wrongly.
+ */
+@Service
+public class GroupMembershipService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupMembershipService.class);
+
+    private final KeyCloakService keyCloakService;
+    private final KeycloakProperties keycloakProperties;
+
+    public GroupMembershipService(KeyCloakService keyCloakService, KeycloakProperties keycloakProperties) {
+        this.keyCloakService = keyCloakService;
+        this.keycloakProperties = keycloakProperties;
+    }
+
+    public Mono<BulkMembershipResponse> updateGroupMembers(String groupName, Collection<String> usernames, MembershipAction action) {
+        List<String> distinctUsernames = KeyCloakService.distinct(usernames, true);
+
+        return keyCloakService.getKeycloakToken()
+                .flatMap(token -> keyCloakService.getGroupId(token, groupName)
+                        .flatMap(groupId -> keyCloakService.getGroupMembers(token, groupId)
+                                .flatMap(members -> Flux.fromIterable(distinctUsernames)
+                                        .flatMap(username -> updateMember(token, username, members.get(username.toLowerCase(Locale.ROOT)),
+                                                groupName, groupId, action), concurrency())
+                                        .collectList()))
+                        .switchIfEmpty(Mono.fromSupplier(() -> distinctUsernames.stream()
+                                .map(username -> groupNotFound(username, groupName))
+                                .toList()))
+                        .onErrorResume(error -> Mono.just(distinctUsernames.stream()
+                                .map(username -> failed(username, groupName, error))
+                                .toList())))
+                .map(BulkMembershipResponse::new)
+                .contextWrite(WorkloadClass.BULK.context())
+                .doOnSuccess(response -> logger.info("Bulk {} for group '{}' completed: {}", action, groupName, response.getSummary()));
+    }
+
+    public Mono<BulkMembershipResponse> updateUserGroups(String username, Collection<String> groupNames, MembershipAction action) {
+        List<String> distinctGroupNames = KeyCloakService.distinct(groupNames, false);
+
+        return keyCloakService.getKeycloakToken()
+                .flatMap(token -> resolveIds(distinctGroupNames, groupName -> keyCloakService.getGroupId(token, groupName))
+                        .flatMap(groupIds -> keyCloakService.withUserId(token, username, userId -> keyCloakService.getUserGroupIds(token, userId)
+                                .flatMap(currentGroupIds -> Flux.fromIterable(distinctGroupNames)
+                                        .flatMap(groupName -> {
+                                            Resolved groupId = groupIds.get(groupName);
+                                            if (groupId == null) {
+                                                return Mono.just(groupNotFound(username, groupName));
+                                            }
+                                            if (groupId.error() != null) {
+                                                return Mono.just(failed(username, groupName, groupId.error()));
+                                            }
+                                            return apply(token, username, userId, groupName, groupId.id(),
+                                                    currentGroupIds.contains(groupId.id()), action);
+                                        }, concurrency())
+                                        .collectList())))
+                        .switchIfEmpty(Mono.fromSupplier(() -> distinctGroupNames.stream()
+                                .map(groupName -> userNotFound(username, groupName))
+                                .toList()))
+                        .onErrorResume(error -> Mono.just(distinctGroupNames.stream()
+                                .map(groupName -> failed(username, groupName, error))
+                                .toList())))
+                .map(BulkMembershipResponse::new)
+                .contextWrite(WorkloadClass.BULK.context())
+                .doOnSuccess(response -> logger.info("Bulk {} for user '{}' completed: {}", action, username, response.getSummary()));
+    }
+
+    /**
+     * Members are matched by username, so a current member's ID comes straight from the member listing.
+     * Other users are resolved through {@link KeyCloakService#withUserId}, which replaces a cached ID that
+     * Keycloak no longer knows.
+     */
+    private Mono<MembershipResult> updateMember(String token, String username, String memberId, String groupName, String groupId,
+                                                MembershipAction action) {
+        if (memberId != null) {
+            return apply(token, username, memberId, groupName, groupId, true, action);
+        }
+
+        Mono<MembershipResult> result = action == MembershipAction.ADD
+                ? keyCloakService.withUserId(token, username, userId -> keyCloakService.assignUserToGroup(userId, groupId, token)
+                        .then(Mono.just(new MembershipResult(username, groupName, MembershipOutcome.ADDED, null))))
+                : keyCloakService.getUserId(token, username)
+                        .map(userId -> new MembershipResult(username, groupName, MembershipOutcome.NOT_MEMBER, null));
+
+        return result
+                .switchIfEmpty(Mono.fromSupplier(() -> userNotFound(username, groupName)))
+                .onErrorResume(error -> Mono.just(failed(username, groupName, error)));
+    }
+
+    private Mono<MembershipResult> apply(String token, String username, String userId, String groupName, String groupId,
+                                         boolean alreadyMember, MembershipAction action) {
+        if (action == MembershipAction.ADD && alreadyMember) {
+            return Mono.just(new MembershipResult(username, groupName, MembershipOutcome.ALREADY_MEMBER, null));
+        }
+        if (action == MembershipAction.REMOVE && !alreadyMember) {
+            return Mono.just(new MembershipResult(username, groupName, MembershipOutcome.NOT_MEMBER, null));
+        }
+
+        Mono<Void> call = action == MembershipAction.ADD
+                ? keyCloakService.assignUserToGroup(userId, groupId, token)
+                : keyCloakService.removeUserFromGroup(userId, groupId, token);
+        MembershipOutcome outcome = action == MembershipAction.ADD ? MembershipOutcome.ADDED : MembershipOutcome.REMOVED;
+
+        return call
+                .then(Mono.just(new MembershipResult(username, groupName, outcome, null)))
+                .onErrorResume(error -> Mono.just(failed(username, groupName, error)));
+    }
+
+    /**
+     * Resolves every name to its ID with bounded concurrency. Names that do not exist are left out of the map;
+     * a failed lookup is kept as an error so only that name's pair is reported as failed.
+     */
+    private Mono<Map<String, Resolved>> resolveIds(List<String> names, Function<String, Mono<String>> resolver) {
+        return Flux.fromIterable(names)
+                .flatMap(name -> resolver.apply(name)
+                        .map(id -> new Resolved(id, null))
+                        .onErrorResume(error -> Mono.just(new Resolved(null, error)))
+                        .map(resolved -> Map.entry(name, resolved)), concurrency())
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private MembershipResult failed(String username, String groupName, Throwable error) {
+        return new MembershipResult(username, groupName, MembershipOutcome.FAILED, error.getMessage());
+    }
+
+    private MembershipResult userNotFound(String username, String groupName) {
+        return new MembershipResult(username, groupName, MembershipOutcome.USER_NOT_FOUND, "User not found: " + username);
+    }
+
+    private MembershipResult groupNotFound(String username, String groupName) {
+        return new MembershipResult(username, groupName, MembershipOutcome.GROUP_NOT_FOUND, "Group not found: " + groupName);
+    }
+
+    private int concurrency() {
+        return Math.max(1, keycloakProperties.getBulkConcurrency());
+    }
+
+    private record Resolved(String id, Throwable error) {
+    }
+}
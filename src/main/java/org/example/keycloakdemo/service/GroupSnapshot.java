@@ -0,0 +1,75 @@
+package org.example.keycloakdemo.service;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of a realm's group tree, indexed by full path (e.g. {@code /org/team/sub}) and by name.
+ * <p>
+ * Groups are expected in tree order (parents before children), so a name shared by several groups
+ * resolves to the shallowest one. Callers that need a specific nested group should pass its full path.
+ */
+public final class GroupSnapshot {
+
+    private final Map<String, String> idsByPath;
+    private final Map<String, String> idsByName;
+    private final Instant loadedAt;
+
+    private GroupSnapshot(Map<String, String> idsByPath, Map<String, String> idsByName, Instant loadedAt) {
+        this.idsByPath = Collections.unmodifiableMap(idsByPath);
+        this.idsByName = Collections.unmodifiableMap(idsByName);
+        this.loadedAt = loadedAt;
+    }
+
+    public static GroupSnapshot of(List<Map<String, Object>> groups) {
+        return of(groups, Instant.now());
+    }
+
+    static GroupSnapshot of(List<Map<String, Object>> groups, Instant loadedAt) {
+        Map<String, String> idsByPath = new HashMap<>();
+        Map<String, String> idsByName = new HashMap<>();
+
+        for (Map<String, Object> group : groups) {
+            String id = (String) group.get("id");
+            String name = (String) group.get("name");
+            String path = (String) group.get("path");
+            if (id == null || name == null) {
+                continue;
+            }
+            if (path != null) {
+                idsByPath.put(path, id);
+            }
+            idsByName.putIfAbsent(name, id);
+        }
+
+        return new GroupSnapshot(idsByPath, idsByName, loadedAt);
+    }
+
+    /**
+     * Returns the group ID for a full path (starting with {@code /}) or a plain group name, or {@code null}.
+     */
+    public String resolve(String nameOrPath) {
+        if (nameOrPath == null) {
+            return null;
+        }
+        if (nameOrPath.startsWith("/")) {
+            return idsByPath.get(nameOrPath);
+        }
+        return idsByName.get(nameOrPath);
+    }
+
+    public Map<String, String> getIdsByPath() {
+        return idsByPath;
+    }
+
+    public int size() {
+        return idsByPath.size();
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+}
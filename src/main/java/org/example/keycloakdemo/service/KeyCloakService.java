@@ -2,8 +2,10 @@ package org.example.keycloakdemo.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.handler.ErrorLogLimiter;
 import org.example.keycloakdemo.handler.KeycloakException;
 import org.example.keycloakdemo.handler.UserNotFoundException;
+import org.example.keycloakdemo.model.IdLookupResponse;
 import org.example.keycloakdemo.model.UserSearchResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,55 +13,151 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class KeyCloakService {
 
     private static final Logger logger = LoggerFactory.getLogger(KeyCloakService.class);
+    private static final int PAGE_SIZE = 100;
+    private static final int LISTING_THRESHOLD = 50;
+    private static final Duration GROUP_MISS_REFRESH_AGE = Duration.ofSeconds(30);
+    private static final String PASSWORD = "password";
+    private static final String CLIENT_CREDENTIALS = "client_credentials";
+    private static final String JWT_BEARER_ASSERTION = "urn:ietf:params:oauth:client-assertion-type:jwt-bearer";
 
     private final WebClient webClient;
     private final KeycloakProperties keycloakProperties;
+    private final GroupHierarchyCache groupHierarchy;
+    private final ClientAssertionSigner clientAssertionSigner;
+    private final ErrorLogLimiter errorLog;
+    private final PersistentIdCache idCache;
 
-    public KeyCloakService(WebClient.Builder webClientBuilder, KeycloakProperties keycloakProperties) {
-        this.webClient = webClientBuilder.build();
+    public KeyCloakService(WebClient.Builder webClientBuilder, KeycloakProperties keycloakProperties, ErrorLogLimiter errorLog,
+                           PersistentIdCache idCache, KeycloakCallScheduler callScheduler) {
+        validateAuthentication(keycloakProperties);
+        this.webClient = webClientBuilder
+                .filter(callScheduler)
+                .filter(KeycloakCallEvents.filter(keycloakProperties))
+                .build();
         this.keycloakProperties = keycloakProperties;
+        this.errorLog = errorLog;
+        this.idCache = idCache;
+        this.groupHierarchy = new GroupHierarchyCache(this::loadGroupSnapshot, GROUP_MISS_REFRESH_AGE);
+        this.clientAssertionSigner = new ClientAssertionSigner(keycloakProperties);
     }
 
     public Mono<String> getKeycloakToken() {
-        String tokenUrl = String.format("%s/realms/%s/protocol/openid-connect/token",
-                keycloakProperties.getUrl(), keycloakProperties.getRealm());
+        String tokenUrl = tokenUrl();
 
         logger.debug("Requesting token from Keycloak at: {}", tokenUrl);
 
-        return webClient.post()
-                .uri(tokenUrl)
-                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                .body(BodyInserters
-                        .fromFormData("client_id", keycloakProperties.getClientId())
-                        .with("username", keycloakProperties.getAdminUsername())
-                        .with("password", keycloakProperties.getAdminPassword())
-                        .with("grant_type", "password"))
-                .retrieve()
-                .bodyToMono(Map.class)
+        return Mono.fromSupplier(() -> tokenRequestParameters(tokenUrl))
+                .flatMap(form -> webClient.post()
+                        .uri(tokenUrl)
+                        .attribute(KeycloakCallEvents.OPERATION, "getToken")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .body(BodyInserters.fromFormData(form))
+                        .retrieve()
+                        .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "getToken"))
+                        .bodyToMono(Map.class))
                 .map(response -> (String) response.get("access_token"))
                 .doOnSuccess(token -> logger.info("Successfully obtained Access Token."))
-                .doOnError(error -> logger.error("Error obtaining token: {}", error.getMessage()));
+                .doOnError(error -> errorLog.log("getToken", error));
+    }
+
+    /**
+     * Fetches the public realm descriptor. Used to open connections to Keycloak without side effects.
+     */
+    public Mono<Void> pingRealm() {
+        String realmUrl = String.format("%s/realms/%s", keycloakProperties.getUrl(), keycloakProperties.getRealm());
+
+        return webClient.get()
+                .uri(realmUrl)
+                .attribute(KeycloakCallEvents.OPERATION, "pingRealm")
+                .retrieve()
+                .bodyToMono(Void.class);
+    }
+
+    /**
+     * Builds the token request for the configured grant. {@code client_credentials} authenticates the
+     * service-account client with either its secret or a signed JWT assertion and avoids the password
+     * hashing Keycloak performs for every {@code password} grant.
+     */
+    MultiValueMap<String, String> tokenRequestParameters(String tokenUrl) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("client_id", keycloakProperties.getClientId());
+
+        if (PASSWORD.equals(keycloakProperties.getGrantType())) {
+            form.add("username", keycloakProperties.getAdminUsername());
+            form.add("password", keycloakProperties.getAdminPassword());
+            form.add("grant_type", PASSWORD);
+            return form;
+        }
+
+        form.add("grant_type", CLIENT_CREDENTIALS);
+
+        if ("jwt".equals(keycloakProperties.getClientAuthentication())) {
+            form.add("client_assertion_type", JWT_BEARER_ASSERTION);
+            form.add("client_assertion", clientAssertionSigner.sign(tokenUrl));
+            return form;
+        }
+        if (keycloakProperties.getClientSecret() == null || keycloakProperties.getClientSecret().isEmpty()) {
+            throw new IllegalStateException("keycloak.client-secret is required for the client_credentials grant.");
+        }
+        form.add("client_secret", keycloakProperties.getClientSecret());
+        return form;
+    }
+
+    /**
+     * Rejects unknown {@code keycloak.grant-type} and {@code keycloak.client-authentication} values at startup
+     * instead of silently falling back to the password grant or the client secret.
+     */
+    private static void validateAuthentication(KeycloakProperties keycloakProperties) {
+        if (!PASSWORD.equals(keycloakProperties.getGrantType()) && !CLIENT_CREDENTIALS.equals(keycloakProperties.getGrantType())) {
+            throw new IllegalStateException("keycloak.grant-type must be 'password' or 'client_credentials', not '" + keycloakProperties.getGrantType() + "'.");
+        }
+        if (!"secret".equals(keycloakProperties.getClientAuthentication()) && !"jwt".equals(keycloakProperties.getClientAuthentication())) {
+            throw new IllegalStateException("keycloak.client-authentication must be 'secret' or 'jwt', not '" + keycloakProperties.getClientAuthentication() + "'.");
+        }
+    }
+
+    String tokenUrl() {
+        return String.format("%s/realms/%s/protocol/openid-connect/token", keycloakProperties.getUrl(), keycloakProperties.getRealm());
     }
 
-    public Mono<Void> createUser(String username, String email, String token) {
+    /**
+     * Creates an enabled user. Completes with the new user's ID taken from the {@code Location} header,
+     * or empty if Keycloak did not send one.
+     */
+    public Mono<String> createUser(String username, String email, String token) {
         String userUrl = String.format("%s/admin/realms/%s/users", keycloakProperties.getUrl(), keycloakProperties.getRealm());
 
         return webClient.post()
                 .uri(userUrl)
+                .attribute(KeycloakCallEvents.OPERATION, "createUser")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(BodyInserters.fromValue(Map.of(
@@ -68,59 +166,159 @@ public class KeyCloakService {
                         "enabled", true
                 )))
                 .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
-                        clientResponse.bodyToMono(String.class)
-                                .flatMap(body -> {
-                                    String errorMessage = String.format("Client error occurred while creating user '%s': %s", username, body);
-                                    logger.error(errorMessage);
-                                    return Mono.error(new KeycloakException(errorMessage, null));
-                                })
-                )
-                .onStatus(HttpStatusCode::is5xxServerError, clientResponse ->
-                        clientResponse.bodyToMono(String.class)
-                                .flatMap(body -> {
-                                    String errorMessage = String.format("Server error occurred while creating user '%s': %s", username, body);
-                                    logger.error(errorMessage);
-                                    return Mono.error(new KeycloakException(errorMessage, null));
-                                })
-                )
-                .bodyToMono(Void.class)
-                //.then()
-                .doOnSuccess(v -> logger.info("User created successfully with username: {}", username))
-                .doOnError(error -> logger.error("Error creating user: {}", error.getMessage()));
+                .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "createUser"))
+                .toBodilessEntity()
+                .mapNotNull(KeyCloakService::createdId)
+                .doOnSuccess(userId -> {
+                    if (userId != null) {
+                        idCache.put(PersistentIdCache.Kind.USER, username, userId);
+                    } else {
+                        idCache.remove(PersistentIdCache.Kind.USER, username);
+                    }
+                    logger.info("User created successfully with username: {}", username);
+                })
+                .doOnError(error -> errorLog.log("createUser", error));
+    }
+
+    /**
+     * Reads the full user representation, changes only its email and writes it back, since Keycloak's
+     * update replaces the representation and a partial body can reset fields that were left out.
+     */
+    public Mono<Void> updateUserEmail(String userId, String email, String token) {
+        String userUrl = String.format("%s/admin/realms/%s/users/%s", keycloakProperties.getUrl(), keycloakProperties.getRealm(), userId);
+
+        return webClient.get()
+                .uri(userUrl)
+                .attribute(KeycloakCallEvents.OPERATION, "getUser")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "getUser"))
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {
+                })
+                .flatMap(user -> {
+                    Map<String, Object> updated = new LinkedHashMap<>(user);
+                    updated.put("email", email);
+                    return webClient.put()
+                            .uri(userUrl)
+                            .attribute(KeycloakCallEvents.OPERATION, "updateUserEmail")
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(BodyInserters.fromValue(updated))
+                            .retrieve()
+                            .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "updateUserEmail"))
+                            .bodyToMono(Void.class);
+                })
+                .doOnSuccess(v -> logger.info("Email updated for user with ID: {}", userId))
+                .doOnError(error -> errorLog.log("updateUserEmail", error));
     }
 
-    public Mono<Void> createGroup(String groupName, String token) {
+    /**
+     * Lists every user of the realm (brief representation), one page at a time.
+     */
+    public Flux<Map<String, Object>> listUsers(String token) {
+        String usersUrl = String.format("%s/admin/realms/%s/users", keycloakProperties.getUrl(), keycloakProperties.getRealm());
+
+        return listAll(token, usersUrl)
+                .doOnError(error -> errorLog.log("listUsers", error));
+    }
+
+    /**
+     * Creates a top-level group. Completes with the new group's ID taken from the {@code Location} header,
+     * or empty if Keycloak did not send one.
+     */
+    public Mono<String> createGroup(String groupName, String token) {
         String createGroupUrl = String.format("%s/admin/realms/%s/groups", keycloakProperties.getUrl(), keycloakProperties.getRealm());
 
         return webClient.post()
                 .uri(createGroupUrl)
+                .attribute(KeycloakCallEvents.OPERATION, "createGroup")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(BodyInserters.fromValue(Map.of("name", groupName)))
                 .retrieve()
-                .onStatus(HttpStatusCode::isError, clientResponse ->
-                        clientResponse.bodyToMono(String.class)
-                                .flatMap(body -> {
-                                    String errorMessage = String.format("Error creating group '%s': %s", groupName, body);
-                                    logger.error(errorMessage);
-                                    return Mono.error(new KeycloakException(errorMessage, null));
-                                })
-                )
-                .bodyToMono(Void.class)
-                //.then()
-                .doOnSuccess(v -> logger.info("Group created successfully with groupName: {}", groupName))
-                .doOnError(error -> logger.error("Error creating group: {}", error.getMessage()));
+                .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "createGroup"))
+                .toBodilessEntity()
+                .mapNotNull(KeyCloakService::createdId)
+                .doOnSuccess(groupId -> groupCreated(groupName))
+                .doOnError(error -> errorLog.log("createGroup", error));
+    }
+
+    /**
+     * Drops group state made stale by a newly created group.
+     */
+    void groupCreated(String groupName) {
+        groupHierarchy.invalidate();
+        idCache.remove(PersistentIdCache.Kind.GROUP, groupName);
+        logger.info("Group created successfully with groupName: {}", groupName);
+    }
+
+    private static String createdId(ResponseEntity<Void> response) {
+        URI location = response.getHeaders().getLocation();
+        if (location == null || location.getPath() == null) {
+            return null;
+        }
+        String path = location.getPath();
+        String id = path.substring(path.lastIndexOf('/') + 1);
+        return id.isEmpty() ? null : id;
     }
 
     public Mono<String> getUserId(String token, String username) {
+        return Mono.defer(() -> {
+            String cachedUserId = idCache.get(PersistentIdCache.Kind.USER, username);
+            return cachedUserId != null ? Mono.just(cachedUserId) : fetchUserId(token, username);
+        });
+    }
+
+    /**
+     * Runs a call that needs the user's ID. An ID read from the cache is checked as described for
+     * {@link #withUserId(String, String, String, Function)}; an ID just fetched from Keycloak is used as is.
+     * Completes empty when the user does not exist.
+     */
+    public <T> Mono<T> withUserId(String token, String username, Function<String, Mono<T>> call) {
+        return Mono.defer(() -> {
+            String cachedUserId = idCache.get(PersistentIdCache.Kind.USER, username);
+            return cachedUserId == null
+                    ? fetchUserId(token, username).flatMap(call)
+                    : withUserId(token, username, cachedUserId, call);
+        });
+    }
+
+    /**
+     * Runs a call with a user ID that may have come from the cache. If Keycloak answers 404, the user is looked
+     * up again: only when the ID has changed (the user was deleted or recreated since it was cached) is the call
+     * repeated with the current ID. A 404 about anything else, such as a deleted group, is passed on unchanged,
+     * and the call completes empty when the user no longer exists.
+     */
+    public <T> Mono<T> withUserId(String token, String username, String userId, Function<String, Mono<T>> call) {
+        return call.apply(userId)
+                .onErrorResume(error -> error instanceof KeycloakException keycloakException && keycloakException.getStatus() == 404,
+                        error -> refreshUserId(token, username)
+                                .flatMap(currentUserId -> {
+                                    if (currentUserId.equals(userId)) {
+                                        return Mono.error(error);
+                                    }
+                                    logger.info("Cached ID of user {} is stale, retrying with the current ID", username);
+                                    return call.apply(currentUserId);
+                                }));
+    }
 
-        String searchUserUrl = String.format("%s/admin/realms/%s/users?username=%s", keycloakProperties.getUrl(), keycloakProperties.getRealm(), username);
+    /**
+     * Looks the user up in Keycloak, bypassing the cache, and replaces or drops the cached entry to match.
+     */
+    public Mono<String> refreshUserId(String token, String username) {
+        return fetchUserId(token, username)
+                .switchIfEmpty(Mono.fromRunnable(() -> idCache.remove(PersistentIdCache.Kind.USER, username)));
+    }
+
+    private Mono<String> fetchUserId(String token, String username) {
+        String searchUserUrl = String.format("%s/admin/realms/%s/users?username=%s&exact=true", keycloakProperties.getUrl(), keycloakProperties.getRealm(), username);
 
         return webClient.get()
                 .uri(searchUserUrl)
+                .attribute(KeycloakCallEvents.OPERATION, "getUserId")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .retrieve()
+                .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "getUserId"))
                 .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {
                 })
                 .flatMap(users -> {
@@ -130,29 +328,168 @@ public class KeyCloakService {
                         return Mono.empty();
                     }
                 })
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(2)))
-                .doOnError(error -> logger.error("Error retrieving user ID for username: {}. Error: {}", username, error.getMessage()));
+                .retryWhen(KeycloakErrors.transientRetry("getUserId"))
+                .doOnNext(userId -> idCache.put(PersistentIdCache.Kind.USER, username, userId))
+                .doOnError(error -> errorLog.log("getUserId", error));
     }
 
+    /**
+     * Resolves a group by exact name or by full path (e.g. {@code /org/team/sub}) from the in-memory group snapshot.
+     * Until the first snapshot has been loaded, IDs persisted by a previous run are used instead.
+     */
     public Mono<String> getGroupId(String token, String groupName) {
+        return Mono.defer(() -> {
+            String cachedGroupId = groupHierarchy.peek() == null ? idCache.get(PersistentIdCache.Kind.GROUP, groupName) : null;
+            if (cachedGroupId != null) {
+                return Mono.just(cachedGroupId);
+            }
+            return groupHierarchy.findGroupId(token, groupName)
+                    .doOnNext(groupId -> idCache.put(PersistentIdCache.Kind.GROUP, groupName, groupId))
+                    .doOnError(error -> errorLog.log("getGroupId", error));
+        });
+    }
+
+    /**
+     * Resolves many usernames and group names at once. Names are deduplicated (usernames case-insensitively),
+     * and a name whose lookup fails is reported in {@code failedUsers} / {@code failedGroups} without failing the batch.
+     * Groups are served from the group snapshot. Users are always resolved against Keycloak, since a cached ID
+     * of a deleted user would otherwise be handed out; the results refresh the cache. That takes one lookup per
+     * name with bounded concurrency, or, when that would take more requests than listing the whole realm,
+     * a single paged user listing.
+     */
+    public Mono<IdLookupResponse> lookupIds(String token, Collection<String> usernames, Collection<String> groupNames) {
+        List<String> distinctUsernames = distinct(usernames, true);
+        List<String> distinctGroupNames = distinct(groupNames, false);
+
+        return Mono.zip(lookupUserIds(token, distinctUsernames), resolveAll(distinctGroupNames, groupName -> getGroupId(token, groupName)))
+                .map(lookups -> new IdLookupResponse(lookups.getT1().ids(), lookups.getT2().ids(),
+                        lookups.getT1().missing(distinctUsernames), lookups.getT2().missing(distinctGroupNames),
+                        lookups.getT1().errors(), lookups.getT2().errors()))
+                .doOnSuccess(response -> logger.info("Looked up {} usernames and {} group names ({} users, {} groups missing; {} users, {} groups failed)",
+                        distinctUsernames.size(), distinctGroupNames.size(), response.getMissingUsers().size(), response.getMissingGroups().size(),
+                        response.getFailedUsers().size(), response.getFailedGroups().size()));
+    }
+
+    /**
+     * A failed count only skips the choice of listing; a failed listing fails every name it was meant to resolve.
+     */
+    private Mono<Lookup> lookupUserIds(String token, List<String> usernames) {
+        if (usernames.size() < LISTING_THRESHOLD) {
+            return resolveAll(usernames, username -> refreshUserId(token, username));
+        }
+        return countUsers(token)
+                .map(count -> (count + PAGE_SIZE - 1) / PAGE_SIZE < usernames.size())
+                .onErrorReturn(false)
+                .flatMap(listing -> listing
+                        ? listUserIds(token, usernames)
+                        : resolveAll(usernames, username -> refreshUserId(token, username)));
+    }
+
+    /**
+     * Resolves each name with bounded concurrency. A name whose lookup fails (after the resolver's own retries)
+     * is reported with its error instead of failing the others.
+     */
+    private Mono<Lookup> resolveAll(List<String> names, Function<String, Mono<String>> resolver) {
+        return Mono.defer(() -> {
+            Map<String, String> ids = new ConcurrentHashMap<>();
+            Map<String, String> errors = new ConcurrentHashMap<>();
+            return Flux.fromIterable(names)
+                    .flatMap(name -> resolver.apply(name)
+                            .doOnNext(id -> ids.put(name, id))
+                            .onErrorResume(error -> {
+                                errors.put(name, String.valueOf(error.getMessage()));
+                                return Mono.empty();
+                            }), Math.max(1, keycloakProperties.getBulkConcurrency()))
+                    .then(Mono.fromSupplier(() -> new Lookup(ids, errors)));
+        });
+    }
 
-        String searchGroupUrl = String.format("%s/admin/realms/%s/groups?search=%s", keycloakProperties.getUrl(), keycloakProperties.getRealm(), groupName);
+    private Mono<Lookup> listUserIds(String token, List<String> usernames) {
+        Map<String, String> requested = new HashMap<>();
+        for (String username : usernames) {
+            requested.put(username.toLowerCase(Locale.ROOT), username);
+        }
+
+        return listUsers(token)
+                .filter(user -> user.get("username") instanceof String username && requested.containsKey(username.toLowerCase(Locale.ROOT)))
+                .collectMap(user -> requested.get(((String) user.get("username")).toLowerCase(Locale.ROOT)), user -> (String) user.get("id"))
+                .doOnNext(found -> usernames.forEach(username -> {
+                    if (found.containsKey(username)) {
+                        idCache.put(PersistentIdCache.Kind.USER, username, found.get(username));
+                    } else {
+                        idCache.remove(PersistentIdCache.Kind.USER, username);
+                    }
+                }))
+                .map(found -> new Lookup(found, Map.of()))
+                .onErrorResume(error -> Mono.just(new Lookup(Map.of(), usernames.stream()
+                        .collect(Collectors.toMap(Function.identity(), username -> String.valueOf(error.getMessage()))))));
+    }
+
+    public Mono<Integer> countUsers(String token) {
+        String countUrl = String.format("%s/admin/realms/%s/users/count", keycloakProperties.getUrl(), keycloakProperties.getRealm());
 
         return webClient.get()
-                .uri(searchGroupUrl)
+                .uri(countUrl)
+                .attribute(KeycloakCallEvents.OPERATION, "countUsers")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {
-                })
-                .flatMap(groups -> {
-                    if (!groups.isEmpty()) {
-                        return Mono.just((String) groups.getFirst().get("id"));
-                    } else {
-                        return Mono.empty();
-                    }
-                })
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(2)))
-                .doOnError(error -> logger.error("Error retrieving group ID for groupName: {}. Error: {}", groupName, error.getMessage()));
+                .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "countUsers"))
+                .bodyToMono(Integer.class)
+                .doOnError(error -> errorLog.log("countUsers", error));
+    }
+
+    static List<String> distinct(Collection<String> names, boolean ignoreCase) {
+        Map<String, String> distinctNames = new LinkedHashMap<>();
+        if (names != null) {
+            for (String name : names) {
+                if (name != null && !name.isBlank()) {
+                    String trimmed = name.trim();
+                    distinctNames.putIfAbsent(ignoreCase ? trimmed.toLowerCase(Locale.ROOT) : trimmed, trimmed);
+                }
+            }
+        }
+        return new ArrayList<>(distinctNames.values());
+    }
+
+    public Mono<GroupSnapshot> refreshGroupHierarchy(String token) {
+        return groupHierarchy.refresh(token);
+    }
+
+    @Scheduled(fixedDelayString = "${keycloak.group-refresh-interval:PT5M}", initialDelayString = "${keycloak.group-refresh-interval:PT5M}")
+    public void scheduledGroupHierarchyRefresh() {
+        getKeycloakToken()
+                .flatMap(this::refreshGroupHierarchy)
+                .contextWrite(WorkloadClass.BACKGROUND.context())
+                .subscribe(
+                        snapshot -> logger.debug("Group hierarchy refreshed with {} groups", snapshot.size()),
+                        error -> logger.warn("Scheduled group hierarchy refresh failed: {}", error.getMessage()));
+    }
+
+    private Mono<GroupSnapshot> loadGroupSnapshot(String token) {
+        String groupsUrl = String.format("%s/admin/realms/%s/groups", keycloakProperties.getUrl(), keycloakProperties.getRealm());
+
+        return listAll(token, groupsUrl)
+                .expand(group -> listSubGroups(token, group))
+                .collectList()
+                .map(GroupSnapshot::of)
+                .retryWhen(KeycloakErrors.transientRetry("loadGroupSnapshot"))
+                .doOnSuccess(snapshot -> logger.info("Loaded group hierarchy with {} groups", snapshot.size()));
+    }
+
+    /**
+     * Older Keycloak versions embed {@code subGroups} in the listing; newer ones only report {@code subGroupCount}
+     * and serve children from {@code /groups/{id}/children}.
+     */
+    @SuppressWarnings("unchecked")
+    private Flux<Map<String, Object>> listSubGroups(String token, Map<String, Object> group) {
+        if (group.get("subGroups") instanceof List<?> subGroups && !subGroups.isEmpty()) {
+            return Flux.fromIterable((List<Map<String, Object>>) subGroups);
+        }
+        if (group.get("subGroupCount") instanceof Number subGroupCount && subGroupCount.longValue() > 0) {
+            String childrenUrl = String.format("%s/admin/realms/%s/groups/%s/children", keycloakProperties.getUrl(), keycloakProperties.getRealm(), group.get("id"));
+            return listAll(token, childrenUrl);
+        }
+        return Flux.empty();
     }
 
     public Mono<Void> assignUserToGroup(String userId, String groupId, String token) {
@@ -160,20 +497,97 @@ public class KeyCloakService {
 
         return webClient.put()
                 .uri(assignUserToGroupUrl)
+                .attribute(KeycloakCallEvents.OPERATION, "assignUserToGroup")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 //.contentType(MediaType.APPLICATION_JSON)
                 .retrieve()
-                .onStatus(HttpStatusCode::isError, clientResponse ->
-                        clientResponse.bodyToMono(String.class)
-                                .flatMap(body -> {
-                                    String errorMessage = String.format("Error assigning User ID '%s' to Group ID '%s': %s", userId, groupId, body);
-                                    logger.error(errorMessage);
-                                    return Mono.error(new KeycloakException(errorMessage, null));
-                                })
-                )
+                .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "assignUserToGroup"))
                 .bodyToMono(Void.class)
                 .doOnSuccess(v -> logger.info("User with ID: {} assigned to group with ID: {}", userId, groupId))
-                .doOnError(error -> logger.error("Error assigning user to group: {}", error.getMessage()));
+                .doOnError(error -> errorLog.log("assignUserToGroup", error));
+    }
+
+    public Mono<Void> removeUserFromGroup(String userId, String groupId, String token) {
+        String removeUserFromGroupUrl = String.format("%s/admin/realms/%s/users/%s/groups/%s", keycloakProperties.getUrl(), keycloakProperties.getRealm(), userId, groupId);
+
+        return webClient.delete()
+                .uri(removeUserFromGroupUrl)
+                .attribute(KeycloakCallEvents.OPERATION, "removeUserFromGroup")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "removeUserFromGroup"))
+                .bodyToMono(Void.class)
+                .doOnSuccess(v -> logger.info("User with ID: {} removed from group with ID: {}", userId, groupId))
+                .doOnError(error -> errorLog.log("removeUserFromGroup", error));
+    }
+
+    public Mono<Set<String>> getGroupMemberIds(String token, String groupId) {
+        String groupMembersUrl = String.format("%s/admin/realms/%s/groups/%s/members", keycloakProperties.getUrl(), keycloakProperties.getRealm(), groupId);
+
+        return listAll(token, groupMembersUrl)
+                .map(member -> (String) member.get("id"))
+                .collect(Collectors.toSet())
+                .doOnError(error -> errorLog.log("getGroupMemberIds", error));
+    }
+
+    /**
+     * Reads a group's members as lower-cased username → user ID, so membership can be checked by name
+     * without trusting a cached user ID.
+     */
+    public Mono<Map<String, String>> getGroupMembers(String token, String groupId) {
+        String groupMembersUrl = String.format("%s/admin/realms/%s/groups/%s/members", keycloakProperties.getUrl(), keycloakProperties.getRealm(), groupId);
+
+        return listAll(token, groupMembersUrl)
+                .filter(member -> member.get("username") instanceof String && member.get("id") instanceof String)
+                .collectMap(member -> ((String) member.get("username")).toLowerCase(Locale.ROOT), member -> (String) member.get("id"))
+                .doOnError(error -> errorLog.log("getGroupMembers", error));
+    }
+
+    public Mono<Set<String>> getUserGroupIds(String token, String userId) {
+        String userGroupsUrl = String.format("%s/admin/realms/%s/users/%s/groups", keycloakProperties.getUrl(), keycloakProperties.getRealm(), userId);
+
+        return listAll(token, userGroupsUrl)
+                .map(group -> (String) group.get("id"))
+                .collect(Collectors.toSet())
+                .doOnError(error -> errorLog.log("getUserGroupIds", error));
+    }
+
+    /**
+     * Reads every page of a Keycloak admin listing endpoint using brief representations.
+     * Pages are requested sequentially until a short page is returned.
+     */
+    Flux<Map<String, Object>> listAll(String token, String listUrl) {
+        return listPage(token, listUrl, 0)
+                .expand(page -> page.items().size() < PAGE_SIZE
+                        ? Mono.empty()
+                        : listPage(token, listUrl, page.first() + PAGE_SIZE))
+                .flatMapIterable(Page::items);
+    }
+
+    private Mono<Page> listPage(String token, String listUrl, int first) {
+        String pageUrl = String.format("%s?briefRepresentation=true&first=%d&max=%d", listUrl, first, PAGE_SIZE);
+
+        return webClient.get()
+                .uri(pageUrl)
+                .attribute(KeycloakCallEvents.OPERATION, "list")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "list"))
+                .bodyToMono(new ParameterizedTypeReference<List<Map<String, Object>>>() {
+                })
+                .map(items -> new Page(first, items));
+    }
+
+    private record Page(int first, List<Map<String, Object>> items) {
+    }
+
+    private record Lookup(Map<String, String> ids, Map<String, String> errors) {
+
+        List<String> missing(List<String> requested) {
+            return requested.stream()
+                    .filter(name -> !ids.containsKey(name) && !errors.containsKey(name))
+                    .toList();
+        }
     }
 
     public Mono<UserSearchResponse> searchUser(String token, String username) {
@@ -183,16 +597,10 @@ public class KeyCloakService {
 
         return webClient.get()
                 .uri(searchUserUrl)
+                .attribute(KeycloakCallEvents.OPERATION, "searchUser")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .retrieve()
-                .onStatus(HttpStatusCode::isError, clientResponse ->
-                        clientResponse.bodyToMono(String.class)
-                                .flatMap(body -> {
-                                    String errorMessage = String.format("Error retrieving user for username '%s': %s", username, body);
-                                    logger.error(errorMessage);
-                                    return Mono.error(new UserNotFoundException(errorMessage));
-                                })
-                )
+                .onStatus(HttpStatusCode::isError, clientResponse -> KeycloakErrors.toException(clientResponse, "searchUser"))
                 .bodyToFlux(JsonNode.class)
                 .filter(user -> user.get("username").asText().equalsIgnoreCase(username))
                 .singleOrEmpty()
@@ -203,7 +611,7 @@ public class KeyCloakService {
                         user.get("lastName").asText(),
                         user.get("email").asText()))
                 .doOnSuccess(userResponse -> logger.info("User search completed successfully for username: {}", username))
-                .doOnError(error -> logger.error("Error searching user: {}", error.getMessage()))
-                .switchIfEmpty(Mono.error(new UserNotFoundException("User not found: " + username)));
+                .doOnError(error -> errorLog.log("searchUser", error))
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException("User not found: " + username)));
     }
 }
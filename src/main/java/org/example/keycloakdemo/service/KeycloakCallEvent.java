@@ -0,0 +1,45 @@
+package org.example.keycloakdemo.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One Keycloak admin API call, from sending the request until the response status and headers arrive.
+ */
+@Name("org.example.keycloakdemo.KeycloakCall")
+@Label("Keycloak Call")
+@Category({"Keycloak"})
+@Description("Outbound Keycloak admin API call")
+@StackTrace(false)
+public final class KeycloakCallEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Realm")
+    String realm;
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    @Description("Request path and query, including the user or group the call was about")
+    String path;
+
+    @Label("Workload Class")
+    String workloadClass;
+
+    @Label("Status")
+    @Description("HTTP status, or 0 when no response was received")
+    int status;
+
+    @Label("Response Bytes")
+    @Description("Content-Length of the response, or -1 when unknown")
+    @DataAmount
+    long bytes;
+}
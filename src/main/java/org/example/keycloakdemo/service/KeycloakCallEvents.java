@@ -0,0 +1,130 @@
+package org.example.keycloakdemo.service;
+
+import jdk.jfr.Event;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.handler.KeycloakException;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Emits the Keycloak JFR events ({@link KeycloakCallEvent}, {@link KeycloakTokenEvent}, {@link KeycloakRetryEvent}).
+ * <p>
+ * The events are always registered but cost next to nothing unless a recording has them enabled. Each call is
+ * named by the {@link #OPERATION} request attribute (WebClient) or by {@link #withOperation(String, Supplier)}
+ * (RestClient); the token endpoint is recorded as a token event rather than a call.
+ */
+final class KeycloakCallEvents {
+
+    static final String OPERATION = KeycloakCallEvents.class.getName() + ".operation";
+
+    private static final String TOKEN_OPERATION = "getToken";
+    private static final ThreadLocal<String> CURRENT_OPERATION = new ThreadLocal<>();
+
+    private KeycloakCallEvents() {
+    }
+
+    static ExchangeFilterFunction filter(KeycloakProperties keycloakProperties) {
+        return (request, next) -> Mono.deferContextual(contextView -> {
+            String operation = request.attribute(OPERATION).map(String::valueOf).orElse(request.method().name());
+            WorkloadClass workloadClass = WorkloadClass.from(contextView);
+            Event event = begin(operation);
+            AtomicBoolean committed = new AtomicBoolean();
+            return next.exchange(request)
+                    .doOnNext(response -> {
+                        if (committed.compareAndSet(false, true)) {
+                            commit(event, keycloakProperties, operation, request.method().name(), request.url(),
+                                    workloadClass, response.statusCode().value(), response.headers().contentLength().orElse(-1));
+                        }
+                    })
+                    .doOnError(error -> {
+                        if (committed.compareAndSet(false, true)) {
+                            commit(event, keycloakProperties, operation, request.method().name(), request.url(), workloadClass, 0, -1);
+                        }
+                    })
+                    // A timeout or a cancelled caller still shows up, with status 0, instead of vanishing from the recording
+                    .doOnCancel(() -> {
+                        if (committed.compareAndSet(false, true)) {
+                            commit(event, keycloakProperties, operation, request.method().name(), request.url(), workloadClass, 0, -1);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * RestClient counterpart of {@link #filter(KeycloakProperties)}; the operation is taken from the enclosing
+     * {@link #withOperation(String, Supplier)} on the calling thread.
+     */
+    static ClientHttpRequestInterceptor interceptor(KeycloakProperties keycloakProperties, WorkloadClass workloadClass) {
+        return (request, body, execution) -> {
+            String operation = CURRENT_OPERATION.get() != null ? CURRENT_OPERATION.get() : request.getMethod().name();
+            Event event = begin(operation);
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                commit(event, keycloakProperties, operation, request.getMethod().name(), request.getURI(),
+                        workloadClass, response.getStatusCode().value(), response.getHeaders().getContentLength());
+                return response;
+            } catch (IOException | RuntimeException e) {
+                commit(event, keycloakProperties, operation, request.getMethod().name(), request.getURI(), workloadClass, 0, -1);
+                throw e;
+            }
+        };
+    }
+
+    static <T> T withOperation(String operation, Supplier<T> call) {
+        String previous = CURRENT_OPERATION.get();
+        CURRENT_OPERATION.set(operation);
+        try {
+            return call.get();
+        } finally {
+            CURRENT_OPERATION.set(previous);
+        }
+    }
+
+    static void retry(String operation, long attempt, Throwable failure) {
+        KeycloakRetryEvent event = new KeycloakRetryEvent();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.operation = operation;
+        event.attempt = attempt;
+        event.status = failure instanceof KeycloakException keycloakException ? keycloakException.getStatus() : 0;
+        event.failure = failure.toString();
+        event.commit();
+    }
+
+    private static Event begin(String operation) {
+        Event event = TOKEN_OPERATION.equals(operation) ? new KeycloakTokenEvent() : new KeycloakCallEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void commit(Event event, KeycloakProperties keycloakProperties, String operation, String method, URI uri,
+                               WorkloadClass workloadClass, int status, long bytes) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        if (event instanceof KeycloakTokenEvent tokenEvent) {
+            tokenEvent.realm = keycloakProperties.getRealm();
+            tokenEvent.grantType = keycloakProperties.getGrantType();
+            tokenEvent.status = status;
+            tokenEvent.bytes = bytes;
+        } else if (event instanceof KeycloakCallEvent callEvent) {
+            callEvent.operation = operation;
+            callEvent.realm = keycloakProperties.getRealm();
+            callEvent.method = method;
+            callEvent.path = uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+            callEvent.workloadClass = workloadClass.name();
+            callEvent.status = status;
+            callEvent.bytes = bytes;
+        }
+        event.commit();
+    }
+}
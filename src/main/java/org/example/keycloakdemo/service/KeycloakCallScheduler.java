@@ -0,0 +1,225 @@
+package org.example.keycloakdemo.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.keycloakdemo.config.SchedulerProperties;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admits outbound Keycloak calls through one queue per {@link WorkloadClass}, so a bulk job cannot take every
+ * connection away from interactive requests.
+ * <p>
+ * At most {@code keycloak.scheduler.max-concurrency} calls are in flight overall, and at most the class's own
+ * {@code max-concurrency}. When a slot frees up it goes to the waiting class with the smallest virtual finish
+ * time (weighted fair queuing): under contention classes share slots in proportion to their {@code weight}, and a
+ * class that was idle does not bank credit. A slot is held until the response status and headers arrive.
+ * <p>
+ * Per class, {@code keycloak.scheduler.queue.depth} and {@code keycloak.scheduler.active} gauges and a
+ * {@code keycloak.scheduler.wait} timer are published.
+ */
+@Component
+public class KeycloakCallScheduler implements ExchangeFilterFunction {
+
+    private final SchedulerProperties schedulerProperties;
+    private final Map<WorkloadClass, Lane> lanes = new EnumMap<>(WorkloadClass.class);
+    private int active;
+    private double virtualTime;
+
+    public KeycloakCallScheduler(SchedulerProperties schedulerProperties, MeterRegistry meterRegistry) {
+        this.schedulerProperties = schedulerProperties;
+        for (WorkloadClass workloadClass : WorkloadClass.values()) {
+            SchedulerProperties.WorkloadLimits limits = schedulerProperties.limits(workloadClass);
+            Lane lane = new Lane(Math.max(1, limits.getWeight()), Math.max(1, limits.getMaxConcurrency()),
+                    Timer.builder("keycloak.scheduler.wait")
+                            .description("Time outbound Keycloak calls wait for admission")
+                            .tag("class", tag(workloadClass))
+                            .publishPercentiles(0.5, 0.95, 0.99)
+                            .register(meterRegistry));
+            Gauge.builder("keycloak.scheduler.queue.depth", lane, l -> l.queued)
+                    .description("Outbound Keycloak calls waiting for admission")
+                    .tag("class", tag(workloadClass))
+                    .register(meterRegistry);
+            Gauge.builder("keycloak.scheduler.active", lane, l -> l.active)
+                    .description("Outbound Keycloak calls in flight")
+                    .tag("class", tag(workloadClass))
+                    .register(meterRegistry);
+            lanes.put(workloadClass, lane);
+        }
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!schedulerProperties.isEnabled()) {
+            return next.exchange(request);
+        }
+        return Mono.deferContextual(contextView -> Mono.usingWhen(
+                acquire(WorkloadClass.from(contextView)),
+                permit -> next.exchange(request),
+                Permit::release,
+                (permit, error) -> permit.release(),
+                Permit::release));
+    }
+
+    /**
+     * The same admission for blocking {@code RestClient} calls; the calling (virtual) thread waits for a slot.
+     */
+    ClientHttpRequestInterceptor blockingInterceptor(WorkloadClass workloadClass) {
+        return (request, body, execution) -> {
+            if (!schedulerProperties.isEnabled()) {
+                return execution.execute(request, body);
+            }
+            Permit permit = acquire(workloadClass).block();
+            try {
+                return execution.execute(request, body);
+            } finally {
+                permit.release().block();
+            }
+        };
+    }
+
+    Mono<Permit> acquire(WorkloadClass workloadClass) {
+        Lane lane = lanes.get(workloadClass);
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(lane, sink, System.nanoTime());
+            sink.onCancel(() -> cancel(waiter));
+            List<Waiter> admitted;
+            synchronized (this) {
+                lane.queue.add(waiter);
+                lane.queued++;
+                admitted = admit();
+            }
+            deliver(admitted);
+        });
+    }
+
+    private void cancel(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.lane.queue.remove(waiter)) {
+                waiter.lane.queued--;
+                return;
+            }
+        }
+        // Admitted, but the permit may not have reached the subscriber; release is idempotent.
+        if (waiter.permit != null) {
+            waiter.permit.release().subscribe();
+        }
+    }
+
+    /**
+     * Hands free slots to waiting classes in virtual-finish-time order. Must be called while holding the lock;
+     * the returned waiters are completed by the caller after releasing it.
+     */
+    private List<Waiter> admit() {
+        List<Waiter> admitted = new ArrayList<>();
+        while (active < Math.max(1, schedulerProperties.getMaxConcurrency())) {
+            Lane next = null;
+            double nextStart = 0;
+            for (Lane lane : lanes.values()) {
+                if (lane.queue.isEmpty() || lane.active >= lane.maxConcurrency) {
+                    continue;
+                }
+                double start = Math.max(lane.finish, virtualTime);
+                if (next == null || start + 1.0 / lane.weight < nextStart + 1.0 / next.weight) {
+                    next = lane;
+                    nextStart = start;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            virtualTime = nextStart;
+            next.finish = nextStart + 1.0 / next.weight;
+            Waiter waiter = next.queue.poll();
+            next.queued--;
+            next.active++;
+            active++;
+            waiter.permit = new Permit(next);
+            admitted.add(waiter);
+        }
+        return admitted;
+    }
+
+    private void deliver(List<Waiter> admitted) {
+        for (Waiter waiter : admitted) {
+            waiter.lane.wait.record(System.nanoTime() - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+            waiter.sink.success(waiter.permit);
+        }
+    }
+
+    private static String tag(WorkloadClass workloadClass) {
+        return workloadClass.name().toLowerCase(Locale.ROOT);
+    }
+
+    final class Permit {
+
+        private final Lane lane;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Lane lane) {
+            this.lane = lane;
+        }
+
+        Mono<Void> release() {
+            return Mono.fromRunnable(() -> {
+                if (!released.compareAndSet(false, true)) {
+                    return;
+                }
+                List<Waiter> admitted;
+                synchronized (KeycloakCallScheduler.this) {
+                    lane.active--;
+                    active--;
+                    admitted = admit();
+                }
+                deliver(admitted);
+            });
+        }
+    }
+
+    private static final class Lane {
+
+        private final int weight;
+        private final int maxConcurrency;
+        private final Timer wait;
+        private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        private volatile int queued;
+        private volatile int active;
+        private double finish;
+
+        private Lane(int weight, int maxConcurrency, Timer wait) {
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+            this.wait = wait;
+        }
+    }
+
+    private static final class Waiter {
+
+        private final Lane lane;
+        private final MonoSink<Permit> sink;
+        private final long enqueuedAt;
+        private volatile Permit permit;
+
+        private Waiter(Lane lane, MonoSink<Permit> sink, long enqueuedAt) {
+            this.lane = lane;
+            this.sink = sink;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.keycloakdemo.service;
+
+import org.example.keycloakdemo.handler.KeycloakException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns Keycloak error responses into {@link KeycloakException}s without reading unbounded bodies.
+ */
+final class KeycloakErrors {
+
+    private static final int MAX_EXCERPT_BYTES = 512;
+    private static final int MAX_RETRIES = 3;
+    private static final Duration RETRY_BACKOFF = Duration.ofSeconds(2);
+    private static final Pattern ERROR_CODE = Pattern.compile("\"(?:error|errorMessage)\"\\s*:\\s*\"([^\"]{0,200})\"");
+
+    private KeycloakErrors() {
+    }
+
+    /**
+     * Reads at most {@value #MAX_EXCERPT_BYTES} bytes of the error body and extracts Keycloak's
+     * {@code error} or {@code errorMessage} field when present. For use with {@code retrieve().onStatus(...)}.
+     */
+    static Mono<KeycloakException> toException(ClientResponse response, String operation) {
+        int status = response.statusCode().value();
+
+        return DataBufferUtils.join(DataBufferUtils.takeUntilByteCount(response.body(BodyExtractors.toDataBuffers()), MAX_EXCERPT_BYTES))
+                .map(KeycloakErrors::readAndRelease)
+                .defaultIfEmpty("")
+                .map(excerpt -> new KeycloakException(status, operation, errorCode(excerpt), excerpt));
+    }
+
+    /**
+     * Blocking counterpart of {@link #toException(ClientResponse, String)} for {@code RestClient}'s
+     * {@code onStatus(...)}; reads at most {@value #MAX_EXCERPT_BYTES} bytes of the body.
+     */
+    static KeycloakException toException(int status, InputStream body, String operation) throws IOException {
+        String excerpt = new String(body.readNBytes(MAX_EXCERPT_BYTES), StandardCharsets.UTF_8);
+        return new KeycloakException(status, operation, errorCode(excerpt), excerpt);
+    }
+
+    /**
+     * Retries transient failures only: connection errors, 429 and 5xx. Client errors such as 404 or 409
+     * are returned immediately. Every retry is recorded as a {@link KeycloakRetryEvent}.
+     */
+    static Retry transientRetry(String operation) {
+        return Retry.backoff(MAX_RETRIES, RETRY_BACKOFF)
+                .filter(KeycloakErrors::isTransient)
+                .doBeforeRetry(signal -> KeycloakCallEvents.retry(operation, signal.totalRetries() + 1, signal.failure()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    /**
+     * Blocking counterpart of {@link #transientRetry(String)} for {@code RestClient} calls: the same failures are
+     * retried, as often, with the same exponential backoff (without jitter).
+     */
+    static <T> T retryTransient(String operation, Supplier<T> call) {
+        return retryTransient(operation, RETRY_BACKOFF, call);
+    }
+
+    static <T> T retryTransient(String operation, Duration backoff, Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (attempt > MAX_RETRIES || !isTransient(e)) {
+                    throw e;
+                }
+                KeycloakCallEvents.retry(operation, attempt, e);
+                try {
+                    Thread.sleep(backoff.multipliedBy(1L << (attempt - 1)).toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    static boolean isTransient(Throwable error) {
+        return error instanceof WebClientRequestException
+                || error instanceof ResourceAccessException
+                || error instanceof KeycloakException keycloakException && keycloakException.isRetryable();
+    }
+
+    private static String readAndRelease(DataBuffer buffer) {
+        try {
+            return buffer.toString(StandardCharsets.UTF_8);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private static String errorCode(String excerpt) {
+        Matcher matcher = ERROR_CODE.matcher(excerpt);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
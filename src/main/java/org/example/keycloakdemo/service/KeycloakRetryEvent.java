@@ -0,0 +1,32 @@
+package org.example.keycloakdemo.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A retry of a Keycloak call after a transient failure.
+ */
+@Name("org.example.keycloakdemo.KeycloakRetry")
+@Label("Keycloak Retry")
+@Category({"Keycloak"})
+@Description("Retry of a Keycloak call after a transient failure")
+@StackTrace(false)
+public final class KeycloakRetryEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Attempt")
+    long attempt;
+
+    @Label("Status")
+    @Description("HTTP status of the failed attempt, or 0 for connection errors")
+    int status;
+
+    @Label("Failure")
+    String failure;
+}
@@ -0,0 +1,35 @@
+package org.example.keycloakdemo.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One admin token request to Keycloak's token endpoint.
+ */
+@Name("org.example.keycloakdemo.KeycloakToken")
+@Label("Keycloak Token Fetch")
+@Category({"Keycloak"})
+@Description("Admin access token request")
+@StackTrace(false)
+public final class KeycloakTokenEvent extends Event {
+
+    @Label("Realm")
+    String realm;
+
+    @Label("Grant Type")
+    String grantType;
+
+    @Label("Status")
+    @Description("HTTP status, or 0 when no response was received")
+    int status;
+
+    @Label("Response Bytes")
+    @Description("Content-Length of the response, or -1 when unknown")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,95 @@
+package org.example.keycloakdemo.service;
+
+import org.example.keycloakdemo.config.WarmupProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Warms the Keycloak path before the application reports itself ready.
+ * <p>
+ * Spring Boot only publishes {@code ReadinessState.ACCEPTING_TRAFFIC} after all application runners have
+ * returned, so blocking here keeps {@code /actuator/health/readiness} at {@code OUT_OF_SERVICE} until the
+ * warm-up has finished or {@code keycloak.warmup.timeout} has elapsed. Failures are logged and never stop startup.
+ */
+@Component
+public class KeycloakWarmup implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeycloakWarmup.class);
+
+    private final KeyCloakService keyCloakService;
+    private final WarmupProperties warmupProperties;
+
+    public KeycloakWarmup(KeyCloakService keyCloakService, WarmupProperties warmupProperties) {
+        this.keyCloakService = keyCloakService;
+        this.warmupProperties = warmupProperties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!warmupProperties.isEnabled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        warmup()
+                .contextWrite(WorkloadClass.BACKGROUND.context())
+                .timeout(warmupProperties.getTimeout())
+                .onErrorResume(error -> {
+                    logger.warn("Keycloak warm-up did not complete: {}", error.toString());
+                    return Mono.empty();
+                })
+                .block();
+        logger.info("Keycloak warm-up finished in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    Mono<Void> warmup() {
+        return openConnections()
+                .then(keyCloakService.getKeycloakToken())
+                .flatMap(token -> keyCloakService.refreshGroupHierarchy(token)
+                        .doOnNext(snapshot -> logger.info("Warm-up primed group hierarchy with {} groups", snapshot.size()))
+                        .onErrorResume(error -> {
+                            logger.warn("Warm-up could not load group hierarchy: {}", error.getMessage());
+                            return Mono.empty();
+                        })
+                        .then(exerciseCodecs(token)))
+                .then();
+    }
+
+    /**
+     * Issues concurrent requests so the connection pool opens (DNS, TCP and TLS) that many connections up front.
+     * The pings only open connections if they really run side by side, so they are admitted as interactive calls
+     * rather than under the much smaller background cap; nothing else is competing for slots before startup ends.
+     */
+    private Mono<Void> openConnections() {
+        int connections = Math.max(0, warmupProperties.getConnections());
+
+        return Flux.range(0, connections)
+                .flatMap(i -> keyCloakService.pingRealm()
+                        .onErrorResume(error -> {
+                            logger.warn("Warm-up connection {} failed: {}", i, error.getMessage());
+                            return Mono.empty();
+                        }), Math.max(1, connections))
+                .then()
+                .contextWrite(WorkloadClass.INTERACTIVE.context());
+    }
+
+    /**
+     * Runs user lookups for a name that cannot exist, exercising the request, JSON decoding and
+     * empty-result paths of {@link KeyCloakService} without side effects.
+     */
+    private Mono<Void> exerciseCodecs(String token) {
+        String probe = "warmup-" + UUID.randomUUID();
+
+        return Flux.range(0, Math.max(0, warmupProperties.getRequests()))
+                .concatMap(i -> keyCloakService.getUserId(token, probe)
+                        .onErrorResume(error -> Mono.empty()))
+                .then();
+    }
+}
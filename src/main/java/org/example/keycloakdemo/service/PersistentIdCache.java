@@ -0,0 +1,319 @@
+package org.example.keycloakdemo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.keycloakdemo.config.IdCacheProperties;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional on-disk store for the username → user ID and group name → group ID mappings, so a restarted
+ * instance starts with warm lookups instead of re-resolving every hot name against Keycloak.
+ * <p>
+ * Each realm uses two files in {@code keycloak.id-cache.directory}: a compacted {@code .snapshot} and an
+ * append-only {@code .log}. Both are memory-mapped and replayed once at startup; entries carry an
+ * expiry time and are ignored once it has passed. Compaction periodically rewrites the live entries into a
+ * new snapshot and truncates the log. A record is
+ * {@code [kind:1][expiresAtMillis:8][keyLength:2][key][valueLength:2][value]}; an empty value is a removal.
+ * When {@code keycloak.id-cache.enabled} is false every method is a no-op.
+ * <p>
+ * Lookups and updates only touch memory, since they are called from Reactor Netty event-loop threads.
+ * Log appends and compaction run in order on a single writer thread.
+ */
+@Component
+public class PersistentIdCache {
+
+    public enum Kind {
+        USER((byte) 'U'),
+        GROUP((byte) 'G');
+
+        private final byte code;
+
+        Kind(byte code) {
+            this.code = code;
+        }
+
+        static Kind of(byte code) {
+            return code == USER.code ? USER : code == GROUP.code ? GROUP : null;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistentIdCache.class);
+
+    private final IdCacheProperties idCacheProperties;
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("id-cache-writer").daemon().factory());
+    private volatile FileChannel logChannel;
+
+    public PersistentIdCache(IdCacheProperties idCacheProperties, KeycloakProperties keycloakProperties) {
+        this.idCacheProperties = idCacheProperties;
+        Path directory = Path.of(idCacheProperties.getDirectory());
+        String realm = keycloakProperties.getRealm() == null ? "default" : keycloakProperties.getRealm();
+        this.snapshotFile = directory.resolve(realm + ".snapshot");
+        this.logFile = directory.resolve(realm + ".log");
+        if (idCacheProperties.isEnabled()) {
+            load();
+        }
+    }
+
+    public String get(Kind kind, String name) {
+        if (!isOpen() || name == null) {
+            return null;
+        }
+        String key = key(kind, name);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.id();
+    }
+
+    /**
+     * Stores a mapping. Rewrites of an unchanged ID are skipped until half of its TTL has passed,
+     * so repeated lookups of hot names do not grow the log.
+     */
+    public void put(Kind kind, String name, String id) {
+        if (!isOpen() || name == null || id == null) {
+            return;
+        }
+        String key = key(kind, name);
+        long now = System.currentTimeMillis();
+        long ttl = ttl(kind).toMillis();
+        Entry existing = entries.get(key);
+        if (existing != null && existing.id().equals(id) && existing.expiresAt() - now > ttl / 2) {
+            return;
+        }
+        Entry entry = new Entry(id, now + ttl);
+        entries.put(key, entry);
+        append(kind, key, entry);
+    }
+
+    public void remove(Kind kind, String name) {
+        if (!isOpen() || name == null) {
+            return;
+        }
+        String key = key(kind, name);
+        if (entries.remove(key) != null) {
+            append(kind, key, new Entry("", 0));
+        }
+    }
+
+    /**
+     * Rewrites the live entries into a fresh snapshot (written to a temporary file and moved into place)
+     * and truncates the log. Runs on the writer thread after the appends already queued.
+     */
+    @Scheduled(fixedDelayString = "${keycloak.id-cache.compaction-interval:PT10M}", initialDelayString = "${keycloak.id-cache.compaction-interval:PT10M}")
+    public void compact() {
+        if (!isOpen()) {
+            return;
+        }
+        try {
+            writer.execute(this::compactLog);
+        } catch (RejectedExecutionException e) {
+            logger.debug("ID cache is closed, skipping compaction");
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        compact();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("ID cache writer did not finish within 10 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (logChannel == null) {
+            return;
+        }
+        try {
+            logChannel.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close ID cache log: {}", e.getMessage());
+        }
+        logChannel = null;
+    }
+
+    /**
+     * Waits until every queued append has been written.
+     */
+    void flush() {
+        try {
+            writer.submit(() -> {
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void compactLog() {
+        if (logChannel == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel snapshot = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int live = 0;
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (entry.getValue().expiresAt() > now) {
+                    Kind kind = Kind.valueOf(entry.getKey().substring(0, entry.getKey().indexOf(':')));
+                    writeFully(snapshot, encode(kind, entry.getKey(), entry.getValue()));
+                    live++;
+                } else {
+                    entries.remove(entry.getKey(), entry.getValue());
+                }
+            }
+            snapshot.force(false);
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logChannel.truncate(0);
+            logger.debug("Compacted ID cache to {} entries", live);
+        } catch (IOException e) {
+            logger.warn("ID cache compaction failed: {}", e.getMessage());
+        }
+    }
+
+    private boolean isOpen() {
+        return idCacheProperties.isEnabled() && logChannel != null;
+    }
+
+    /**
+     * Replays the files during construction, before the cache is reachable from request threads.
+     */
+    private void load() {
+        try {
+            Files.createDirectories(logFile.getParent());
+            long now = System.currentTimeMillis();
+            int replayed = replay(snapshotFile, now) + replay(logFile, now);
+            logChannel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            logger.info("Loaded {} live ID mappings from {}", entries.size(), logFile.getParent());
+            logger.debug("Replayed {} ID cache records", replayed);
+        } catch (IOException e) {
+            logger.warn("ID cache disabled, unable to open {}: {}", logFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Replays a snapshot or log file through a read-only mapping. A record cut short by a crash ends the replay.
+     */
+    private int replay(Path file, long now) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= 1 + Long.BYTES + Short.BYTES) {
+                Kind kind = Kind.of(buffer.get());
+                long expiresAt = buffer.getLong();
+                String key = readString(buffer);
+                if (kind == null || key == null || buffer.remaining() < Short.BYTES) {
+                    break;
+                }
+                String id = readString(buffer);
+                if (id == null) {
+                    break;
+                }
+                if (id.isEmpty() || expiresAt <= now) {
+                    entries.remove(key);
+                } else {
+                    entries.put(key, new Entry(id, expiresAt));
+                }
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private void append(Kind kind, String key, Entry entry) {
+        ByteBuffer record = encode(kind, key, entry);
+        try {
+            writer.execute(() -> {
+                if (logChannel == null) {
+                    return;
+                }
+                try {
+                    writeFully(logChannel, record);
+                } catch (IOException e) {
+                    logger.warn("Unable to append to ID cache log: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("ID cache is closed, dropping update of {}", key);
+        }
+    }
+
+    private static ByteBuffer encode(Kind kind, String key, Entry entry) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] idBytes = entry.id().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + Short.BYTES + keyBytes.length + Short.BYTES + idBytes.length);
+        buffer.put(kind.code)
+                .putLong(entry.expiresAt())
+                .putShort((short) keyBytes.length)
+                .put(keyBytes)
+                .putShort((short) idBytes.length)
+                .put(idBytes)
+                .flip();
+        return buffer;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (buffer.remaining() < length) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private Duration ttl(Kind kind) {
+        return kind == Kind.USER ? idCacheProperties.getUserTtl() : idCacheProperties.getGroupTtl();
+    }
+
+    /**
+     * Usernames are case-insensitive in Keycloak, group names are not.
+     */
+    private static String key(Kind kind, String name) {
+        return kind.name() + ':' + (kind == Kind.USER ? name.toLowerCase(Locale.ROOT) : name);
+    }
+
+    private record Entry(String id, long expiresAt) {
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.keycloakdemo.service;
+
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.model.DesiredState;
+import org.example.keycloakdemo.model.DesiredUser;
+import org.example.keycloakdemo.model.ReconcileAction;
+import org.example.keycloakdemo.model.ReconcileActionStatus;
+import org.example.keycloakdemo.model.ReconcileActionType;
+import org.example.keycloakdemo.model.ReconcileResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Brings the realm in line with a desired-state document of users, emails and group memberships.
+ * <p>
+ * One snapshot of the current state is taken (all users page by page, the group tree, and the members of the
+ * groups named in the document), the difference is computed in memory, and only the missing groups, users,
+ * email changes and memberships are applied with bounded concurrency. Nothing is ever removed.
+ */
+@Service
+public class ReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconciliationService.class);
+
+    private final KeyCloakService keyCloakService;
+    private final KeycloakProperties keycloakProperties;
+
+    public ReconciliationService(KeyCloakService keyCloakService, KeycloakProperties keycloakProperties) {
+        this.keyCloakService = keyCloakService;
+        this.keycloakProperties = keycloakProperties;
+    }
+
+    public Mono<ReconcileResponse> reconcile(DesiredState desiredState, boolean dryRun) {
+        Map<String, DesiredUser> desiredUsers = normalize(desiredState);
+
+        return keyCloakService.getKeycloakToken()
+                .flatMap(token -> snapshot(token, desiredUsers)
+                        .flatMap(realmState -> {
+                            List<ReconcileAction> actions = plan(desiredUsers, realmState);
+                            return dryRun
+                                    ? Mono.just(actions)
+                                    : apply(token, actions, desiredUsers, realmState);
+                        }))
+                .map(actions -> new ReconcileResponse(dryRun, actions))
+                .contextWrite(WorkloadClass.BULK.context())
+                .doOnSuccess(response -> logger.info("Reconciliation {} finished: {}", dryRun ? "dry run" : "run", response.getSummary()));
+    }
+
+    private Mono<RealmState> snapshot(String token, Map<String, DesiredUser> desiredUsers) {
+        Mono<Map<String, UserState>> users = keyCloakService.listUsers(token)
+                .filter(user -> user.get("username") != null)
+                .collectMap(user -> key((String) user.get("username")),
+                        user -> new UserState((String) user.get("id"), (String) user.get("email")));
+
+        return Mono.zip(users, keyCloakService.refreshGroupHierarchy(token))
+                .flatMap(state -> {
+                    Set<String> groupIds = new LinkedHashSet<>();
+                    for (DesiredUser user : desiredUsers.values()) {
+                        for (String groupName : user.getGroups()) {
+                            String groupId = state.getT2().resolve(groupName);
+                            if (groupId != null) {
+                                groupIds.add(groupId);
+                            }
+                        }
+                    }
+                    return Flux.fromIterable(groupIds)
+                            .flatMap(groupId -> keyCloakService.getGroupMemberIds(token, groupId)
+                                    .map(memberIds -> Map.entry(groupId, memberIds)), concurrency())
+                            .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                            .map(members -> new RealmState(state.getT1(), state.getT2(), members));
+                });
+    }
+
+    List<ReconcileAction> plan(Map<String, DesiredUser> desiredUsers, RealmState realmState) {
+        List<ReconcileAction> actions = new ArrayList<>();
+
+        Set<String> missingGroups = new LinkedHashSet<>();
+        for (DesiredUser user : desiredUsers.values()) {
+            for (String groupName : user.getGroups()) {
+                if (realmState.groups().resolve(groupName) == null && missingGroups.add(groupName)) {
+                    actions.add(groupName.startsWith("/")
+                            ? action(ReconcileActionType.CREATE_GROUP, null, groupName, ReconcileActionStatus.FAILED, "Nested groups are not created; parent path not found.")
+                            : action(ReconcileActionType.CREATE_GROUP, null, groupName, ReconcileActionStatus.PLANNED, null));
+                }
+            }
+        }
+
+        for (Map.Entry<String, DesiredUser> entry : desiredUsers.entrySet()) {
+            DesiredUser user = entry.getValue();
+            UserState existing = realmState.users().get(entry.getKey());
+
+            boolean cannotCreate = existing == null && user.getEmail() == null;
+            if (cannotCreate) {
+                actions.add(action(ReconcileActionType.CREATE_USER, user.getUsername(), null, ReconcileActionStatus.FAILED, "Email is required to create a user."));
+            } else if (existing == null) {
+                actions.add(action(ReconcileActionType.CREATE_USER, user.getUsername(), null, ReconcileActionStatus.PLANNED, null));
+            } else if (user.getEmail() != null && !user.getEmail().equalsIgnoreCase(existing.email())) {
+                actions.add(action(ReconcileActionType.UPDATE_EMAIL, user.getUsername(), null, ReconcileActionStatus.PLANNED, null));
+            }
+
+            for (String groupName : user.getGroups()) {
+                String groupId = realmState.groups().resolve(groupName);
+                boolean member = existing != null && groupId != null
+                        && realmState.members().getOrDefault(groupId, Set.of()).contains(existing.id());
+                if (!member) {
+                    actions.add(cannotCreate
+                            ? action(ReconcileActionType.ADD_MEMBERSHIP, user.getUsername(), groupName, ReconcileActionStatus.FAILED, "User cannot be created.")
+                            : action(ReconcileActionType.ADD_MEMBERSHIP, user.getUsername(), groupName, ReconcileActionStatus.PLANNED, null));
+                }
+            }
+        }
+
+        return actions;
+    }
+
+    /**
+     * Applies the plan in dependency order: groups, then users and emails, then memberships.
+     * Every action reports its own outcome; a failure never aborts the rest of the run.
+     * <p>
+     * IDs of existing users and groups come from the snapshot, and IDs of created ones from Keycloak's
+     * create response, so nothing is looked up again unless Keycloak did not return the new ID.
+     */
+    private Mono<List<ReconcileAction>> apply(String token, List<ReconcileAction> actions, Map<String, DesiredUser> desiredUsers, RealmState realmState) {
+        Map<String, Mono<String>> createdUserIds = new ConcurrentHashMap<>();
+        Map<String, Mono<String>> createdGroupIds = new ConcurrentHashMap<>();
+
+        Function<String, Mono<String>> userId = username -> {
+            UserState existing = realmState.users().get(key(username));
+            Mono<String> created = createdUserIds.get(key(username));
+            return (existing != null ? Mono.just(existing.id()) : created != null ? created : Mono.<String>empty())
+                    .switchIfEmpty(Mono.error(new IllegalStateException("User not found: " + username)));
+        };
+        Function<String, Mono<String>> groupId = groupName -> {
+            String existing = realmState.groups().resolve(groupName);
+            Mono<String> created = createdGroupIds.get(groupName);
+            return (existing != null ? Mono.just(existing) : created != null ? created : Mono.<String>empty())
+                    .switchIfEmpty(Mono.error(new IllegalStateException("Group not found: " + groupName)));
+        };
+
+        return Flux.concat(
+                        phase(actions, ReconcileActionType.CREATE_GROUP, action ->
+                                keyCloakService.createGroup(action.getGroupName(), token)
+                                        .doOnSuccess(id -> createdGroupIds.put(action.getGroupName(), id != null
+                                                ? Mono.just(id)
+                                                : keyCloakService.getGroupId(token, action.getGroupName()).cache()))),
+                        phase(actions, ReconcileActionType.CREATE_USER, action ->
+                                keyCloakService.createUser(action.getUsername(), desiredUsers.get(key(action.getUsername())).getEmail(), token)
+                                        .doOnSuccess(id -> createdUserIds.put(key(action.getUsername()), id != null
+                                                ? Mono.just(id)
+                                                : keyCloakService.refreshUserId(token, action.getUsername()).cache()))),
+                        phase(actions, ReconcileActionType.UPDATE_EMAIL, action ->
+                                userId.apply(action.getUsername())
+                                        .flatMap(id -> keyCloakService.updateUserEmail(id, desiredUsers.get(key(action.getUsername())).getEmail(), token))),
+                        phase(actions, ReconcileActionType.ADD_MEMBERSHIP, action ->
+                                Mono.zip(userId.apply(action.getUsername()), groupId.apply(action.getGroupName()))
+                                        .flatMap(ids -> keyCloakService.assignUserToGroup(ids.getT1(), ids.getT2(), token))))
+                .collectList();
+    }
+
+    private Flux<ReconcileAction> phase(List<ReconcileAction> actions, ReconcileActionType type, Function<ReconcileAction, Mono<?>> operation) {
+        return Flux.fromIterable(actions)
+                .filter(action -> action.getType() == type)
+                .flatMap(action -> action.getStatus() != ReconcileActionStatus.PLANNED
+                        ? Mono.just(action)
+                        : operation.apply(action)
+                        .then(Mono.just(action.withStatus(ReconcileActionStatus.APPLIED, null)))
+                        .onErrorResume(error -> Mono.just(action.withStatus(ReconcileActionStatus.FAILED, error.getMessage()))), concurrency());
+    }
+
+    /**
+     * Keys users by lower-cased username (Keycloak stores usernames in lower case) and merges
+     * duplicate entries: the last email wins and group lists are combined.
+     */
+    private Map<String, DesiredUser> normalize(DesiredState desiredState) {
+        Map<String, DesiredUser> users = new LinkedHashMap<>();
+        if (desiredState == null || desiredState.getUsers() == null) {
+            return users;
+        }
+        for (DesiredUser user : desiredState.getUsers()) {
+            if (user == null || user.getUsername() == null || user.getUsername().isBlank()) {
+                continue;
+            }
+            DesiredUser merged = users.computeIfAbsent(key(user.getUsername()),
+                    name -> new DesiredUser(user.getUsername().trim(), null, new ArrayList<>()));
+            if (user.getEmail() != null && !user.getEmail().isBlank()) {
+                merged.setEmail(user.getEmail().trim());
+            }
+            if (user.getGroups() != null) {
+                for (String groupName : user.getGroups()) {
+                    if (groupName != null && !groupName.isBlank() && !merged.getGroups().contains(groupName.trim())) {
+                        merged.getGroups().add(groupName.trim());
+                    }
+                }
+            }
+        }
+        return users;
+    }
+
+    private ReconcileAction action(ReconcileActionType type, String username, String groupName, ReconcileActionStatus status, String message) {
+        return new ReconcileAction(type, username, groupName, status, message);
+    }
+
+    private static String key(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private int concurrency() {
+        return Math.max(1, keycloakProperties.getBulkConcurrency());
+    }
+
+    record UserState(String id, String email) {
+    }
+
+    record RealmState(Map<String, UserState> users, GroupSnapshot groups, Map<String, Set<String>> members) {
+    }
+}
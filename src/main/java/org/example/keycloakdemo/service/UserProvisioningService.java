@@ -0,0 +1,187 @@
+package org.example.keycloakdemo.service;
+
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.handler.KeycloakException;
+import org.example.keycloakdemo.handler.UserNotFoundException;
+import org.example.keycloakdemo.model.IdLookupEntry;
+import org.example.keycloakdemo.model.IdLookupKind;
+import org.example.keycloakdemo.model.IdLookupRequest;
+import org.example.keycloakdemo.model.IdLookupResponse;
+import org.example.keycloakdemo.model.UserGroupRequest;
+import org.example.keycloakdemo.model.UserSearchResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The user provisioning flows shared by the HTTP and RSocket endpoints: request validation,
+ * create-and-assign-group, user search and ID lookup.
+ */
+@Service
+public class UserProvisioningService {
+
+    private static final String EMAIL_REGEX = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX);
+
+    private final KeyCloakService keyCloakService;
+    private final KeycloakProperties keycloakProperties;
+    private final VirtualThreadKeyCloakService virtualThreadKeyCloakService;
+
+    /**
+     * {@code virtualThreadKeyCloakService} is only present with {@code keycloak.client-mode=virtual-threads}.
+     */
+    public UserProvisioningService(KeyCloakService keyCloakService, KeycloakProperties keycloakProperties,
+                                   @Nullable VirtualThreadKeyCloakService virtualThreadKeyCloakService) {
+        this.keyCloakService = keyCloakService;
+        this.keycloakProperties = keycloakProperties;
+        this.virtualThreadKeyCloakService = virtualThreadKeyCloakService;
+    }
+
+    public Mono<String> createUserAndAssignGroup(UserGroupRequest userGroupRequest) {
+        validateRequest(userGroupRequest);
+
+        if (virtualThreadKeyCloakService != null) {
+            return virtualThreadKeyCloakService.run(() -> virtualThreadKeyCloakService.createUserAndAssignGroup(userGroupRequest));
+        }
+
+        return keyCloakService.getKeycloakToken()
+                .flatMap(token -> createUserAndAssignGroup(token, userGroupRequest));
+    }
+
+    /**
+     * Same flow with a token the caller already holds, so a stream of requests can share one token.
+     * The request is expected to have passed {@link #validateRequest(UserGroupRequest)}.
+     */
+    public Mono<String> createUserAndAssignGroup(String token, UserGroupRequest userGroupRequest) {
+        String username = userGroupRequest.getUsername();
+        String email = userGroupRequest.getEmail();
+        String groupName = userGroupRequest.getGroupName();
+
+        // Step 1: Check if the user exists
+        return keyCloakService.withUserId(token, username, userId ->
+                        // Step 2: Check if the group exists
+                        keyCloakService.getGroupId(token, groupName)
+                                .flatMap(groupId ->
+                                        // If the group exists, assign the user to the group
+                                        keyCloakService.assignUserToGroup(userId, groupId, token)
+                                                .then(Mono.just("User with ID: " + userId + " assigned to existing group with ID: " + groupId + "."))
+                                )
+                                .switchIfEmpty(
+                                        // If the group does not exist, create it
+                                        keyCloakService.createGroup(groupName, token)
+                                                .then(
+                                                        // Step 3: Get the new group ID
+                                                        keyCloakService.getGroupId(token, groupName)
+                                                )
+                                                .flatMap(groupId ->
+                                                        // Step 4: Assign the user to the new group
+                                                        keyCloakService.assignUserToGroup(userId, groupId, token)
+                                                                .then(Mono.just("User with ID: " + userId + " created group with ID: " + groupId + "."))
+                                                )
+                                )
+                )
+                .switchIfEmpty(
+                        // If the user does not exist, create the user and group
+                        keyCloakService.createUser(username, email, token)
+                                .then(keyCloakService.createGroup(groupName, token))
+                                .then(keyCloakService.getUserId(token, username))
+                                .flatMap(userId ->
+                                        keyCloakService.getGroupId(token, groupName)
+                                                .flatMap(groupId ->
+                                                        keyCloakService.assignUserToGroup(userId, groupId, token)
+                                                                .then(Mono.just("User created with ID: " + userId + " and assigned to group with ID: " + groupId + "."))
+                                                )
+                                )
+                );
+    }
+
+    public Mono<UserSearchResponse> searchUser(String username) {
+        if (username == null || username.isEmpty()) {
+            throw new IllegalArgumentException("Username is required for searching.");
+        }
+
+        Mono<UserSearchResponse> user = virtualThreadKeyCloakService != null
+                ? virtualThreadKeyCloakService.run(() -> virtualThreadKeyCloakService.searchUser(virtualThreadKeyCloakService.getKeycloakToken(), username))
+                : keyCloakService.getKeycloakToken().flatMap(token -> keyCloakService.searchUser(token, username));
+
+        // A failed search has always been answered with 404 on this endpoint, so it is not surfaced as a 502
+        return user
+                .onErrorMap(error -> error instanceof KeycloakException keycloakException && "searchUser".equals(keycloakException.getOperation()),
+                        error -> new UserNotFoundException(String.format("Error retrieving user for username '%s': %s", username, error.getMessage())))
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException("User not found in test realm")));
+    }
+
+    public Mono<IdLookupResponse> lookupIds(IdLookupRequest idLookupRequest) {
+        validateLookup(idLookupRequest);
+
+        return keyCloakService.getKeycloakToken()
+                .flatMap(token -> keyCloakService.lookupIds(token, idLookupRequest.getUsernames(), idLookupRequest.getGroupNames()))
+                .contextWrite(WorkloadClass.BULK.context());
+    }
+
+    /**
+     * Resolves the names one by one and emits each result as soon as it is known, users first. Lookups are
+     * only started as the subscriber requests more entries, at most {@code keycloak.bulk-concurrency} at a time.
+     * Users are always looked up in Keycloak rather than the ID cache, so deleted users are never reported.
+     */
+    public Flux<IdLookupEntry> streamIds(IdLookupRequest idLookupRequest) {
+        validateLookup(idLookupRequest);
+
+        return keyCloakService.getKeycloakToken()
+                .flatMapMany(token -> Flux.concat(
+                        resolveEach(IdLookupKind.USER, idLookupRequest.getUsernames(), name -> keyCloakService.refreshUserId(token, name)),
+                        resolveEach(IdLookupKind.GROUP, idLookupRequest.getGroupNames(), name -> keyCloakService.getGroupId(token, name))))
+                .contextWrite(WorkloadClass.BULK.context());
+    }
+
+    /**
+     * Names are de-duplicated like {@link KeyCloakService#lookupIds}: usernames ignoring case, group names as given.
+     * A failed lookup is reported in its own entry and does not end the stream.
+     */
+    private Flux<IdLookupEntry> resolveEach(IdLookupKind kind, List<String> names, Function<String, Mono<String>> resolver) {
+        return Flux.fromIterable(KeyCloakService.distinct(names, kind == IdLookupKind.USER))
+                .flatMapSequential(name -> resolver.apply(name)
+                        .map(id -> new IdLookupEntry(kind, name, id))
+                        .defaultIfEmpty(new IdLookupEntry(kind, name, null))
+                        .onErrorResume(error -> Mono.just(new IdLookupEntry(kind, name, null, error.getMessage()))), concurrency(), 1);
+    }
+
+    public static void validateLookup(IdLookupRequest idLookupRequest) {
+        boolean noUsernames = idLookupRequest.getUsernames() == null || idLookupRequest.getUsernames().isEmpty();
+        boolean noGroupNames = idLookupRequest.getGroupNames() == null || idLookupRequest.getGroupNames().isEmpty();
+        if (noUsernames && noGroupNames) {
+            throw new IllegalArgumentException("At least one username or group name is required.");
+        }
+    }
+
+    public static void validateRequest(UserGroupRequest userGroupRequest) {
+        if (userGroupRequest.getUsername() == null || userGroupRequest.getUsername().isEmpty()) {
+            throw new IllegalArgumentException("Username is required.");
+        }
+        if (userGroupRequest.getEmail() == null || !isValidEmail(userGroupRequest.getEmail())) {
+            throw new IllegalArgumentException("Valid email is required.");
+        }
+        if (userGroupRequest.getGroupName() == null || userGroupRequest.getGroupName().isEmpty()) {
+            throw new IllegalArgumentException("Group name is required.");
+        }
+    }
+
+    public static boolean isValidEmail(String email) {
+        if (email == null || email.isEmpty()) {
+            return false;
+        }
+
+        Matcher matcher = EMAIL_PATTERN.matcher(email);
+        return matcher.matches();
+    }
+
+    private int concurrency() {
+        return Math.max(1, keycloakProperties.getBulkConcurrency());
+    }
+}
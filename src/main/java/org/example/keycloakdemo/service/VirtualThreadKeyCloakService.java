@@ -0,0 +1,313 @@
+package org.example.keycloakdemo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.handler.ErrorLogLimiter;
+import org.example.keycloakdemo.handler.GroupNotFoundException;
+import org.example.keycloakdemo.handler.KeycloakException;
+import org.example.keycloakdemo.handler.UserNotFoundException;
+import org.example.keycloakdemo.model.UserGroupRequest;
+import org.example.keycloakdemo.model.UserSearchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Blocking implementation of the user provisioning calls, built on {@link RestClient} and run on virtual threads.
+ * Enabled with {@code keycloak.client-mode=virtual-threads}; {@link UserProvisioningService} then routes
+ * create-and-assign-group and user search here instead of through the reactive chain.
+ * <p>
+ * Each flow is plain sequential code; independent steps (looking up the user and the group, creating both)
+ * run side by side in a scope of their own virtual threads that is closed before the flow continues. Group
+ * names are still resolved through {@link KeyCloakService#getGroupId(String, String)}, so both modes share
+ * one in-memory group snapshot.
+ */
+@Service
+@ConditionalOnProperty(name = "keycloak.client-mode", havingValue = "virtual-threads")
+public class VirtualThreadKeyCloakService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadKeyCloakService.class);
+
+    private final RestClient restClient;
+    private final KeyCloakService keyCloakService;
+    private final KeycloakProperties keycloakProperties;
+    private final ErrorLogLimiter errorLog;
+    private final PersistentIdCache idCache;
+    private final ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+    private final Scheduler scheduler = Schedulers.fromExecutorService(virtualThreads, "keycloak-virtual");
+
+    public VirtualThreadKeyCloakService(RestClient.Builder restClientBuilder, KeyCloakService keyCloakService,
+                                        KeycloakProperties keycloakProperties, ErrorLogLimiter errorLog,
+                                        PersistentIdCache idCache, KeycloakCallScheduler callScheduler) {
+        this.restClient = restClientBuilder
+                .requestFactory(new JdkClientHttpRequestFactory())
+                .requestInterceptor(callScheduler.blockingInterceptor(WorkloadClass.INTERACTIVE))
+                .requestInterceptor(KeycloakCallEvents.interceptor(keycloakProperties, WorkloadClass.INTERACTIVE))
+                .build();
+        this.keyCloakService = keyCloakService;
+        this.keycloakProperties = keycloakProperties;
+        this.errorLog = errorLog;
+        this.idCache = idCache;
+    }
+
+    /**
+     * Runs blocking work on a virtual thread so it can be returned from the reactive controllers.
+     * A {@code null} result completes empty.
+     */
+    public <T> Mono<T> run(Callable<T> work) {
+        return Mono.fromCallable(work).subscribeOn(scheduler);
+    }
+
+    public String createUserAndAssignGroup(UserGroupRequest userGroupRequest) {
+        String username = userGroupRequest.getUsername();
+        String email = userGroupRequest.getEmail();
+        String groupName = userGroupRequest.getGroupName();
+        String token = getKeycloakToken();
+        boolean cachedUser = idCache.get(PersistentIdCache.Kind.USER, username) != null;
+
+        // Step 1: Look up the user and the group
+        Ids existing = both(() -> getUserId(token, username), () -> getGroupId(token, groupName));
+
+        // Step 2: Create whichever is missing and read back its ID
+        Ids ids = existing.userId() != null && existing.groupId() != null ? existing : both(
+                () -> existing.userId() != null ? existing.userId() : createUserAndGetId(token, username, email),
+                () -> existing.groupId() != null ? existing.groupId() : createGroupAndGetId(token, groupName));
+
+        // Step 3: Assign the user to the group
+        try {
+            assignUserToGroup(ids.userId(), ids.groupId(), token);
+        } catch (KeycloakException e) {
+            if (!cachedUser || e.getStatus() != 404) {
+                throw e;
+            }
+            // Look the user up once more: only a changed ID means the cached one was stale (user deleted or recreated)
+            idCache.remove(PersistentIdCache.Kind.USER, username);
+            String userId = getUserId(token, username);
+            if (ids.userId().equals(userId)) {
+                throw e;
+            }
+            logger.info("Cached ID of user {} is stale, retrying with the current ID", username);
+            ids = new Ids(userId != null ? userId : createUserAndGetId(token, username, email), ids.groupId());
+            assignUserToGroup(ids.userId(), ids.groupId(), token);
+        }
+
+        if (existing.userId() == null) {
+            return "User created with ID: " + ids.userId() + " and assigned to group with ID: " + ids.groupId() + ".";
+        }
+        if (existing.groupId() == null) {
+            return "User with ID: " + ids.userId() + " created group with ID: " + ids.groupId() + ".";
+        }
+        return "User with ID: " + ids.userId() + " assigned to existing group with ID: " + ids.groupId() + ".";
+    }
+
+    public String getKeycloakToken() {
+        String tokenUrl = keyCloakService.tokenUrl();
+
+        Map<?, ?> response = call("getToken", () -> restClient.post()
+                .uri(tokenUrl)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(keyCloakService.tokenRequestParameters(tokenUrl))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (request, clientResponse) -> {
+                    throw KeycloakErrors.toException(clientResponse.getStatusCode().value(), clientResponse.getBody(), "getToken");
+                })
+                .body(Map.class));
+        return (String) response.get("access_token");
+    }
+
+    public String getUserId(String token, String username) {
+        String cachedUserId = idCache.get(PersistentIdCache.Kind.USER, username);
+        if (cachedUserId != null) {
+            return cachedUserId;
+        }
+
+        String searchUserUrl = String.format("%s/admin/realms/%s/users?username=%s&exact=true", keycloakProperties.getUrl(), keycloakProperties.getRealm(), username);
+
+        List<Map<String, Object>> users = call("getUserId", () -> KeycloakErrors.retryTransient("getUserId", () -> restClient.get()
+                .uri(searchUserUrl)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (request, clientResponse) -> {
+                    throw KeycloakErrors.toException(clientResponse.getStatusCode().value(), clientResponse.getBody(), "getUserId");
+                })
+                .body(new ParameterizedTypeReference<List<Map<String, Object>>>() {
+                })));
+        if (users == null || users.isEmpty()) {
+            return null;
+        }
+        String userId = (String) users.getFirst().get("id");
+        idCache.put(PersistentIdCache.Kind.USER, username, userId);
+        return userId;
+    }
+
+    public String getGroupId(String token, String groupName) {
+        return keyCloakService.getGroupId(token, groupName).block();
+    }
+
+    public void createUser(String username, String email, String token) {
+        String userUrl = String.format("%s/admin/realms/%s/users", keycloakProperties.getUrl(), keycloakProperties.getRealm());
+
+        call("createUser", () -> restClient.post()
+                .uri(userUrl)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of(
+                        "username", username,
+                        "email", email,
+                        "enabled", true
+                ))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (request, clientResponse) -> {
+                    throw KeycloakErrors.toException(clientResponse.getStatusCode().value(), clientResponse.getBody(), "createUser");
+                })
+                .toBodilessEntity());
+        logger.info("User created successfully with username: {}", username);
+    }
+
+    public void createGroup(String groupName, String token) {
+        String createGroupUrl = String.format("%s/admin/realms/%s/groups", keycloakProperties.getUrl(), keycloakProperties.getRealm());
+
+        call("createGroup", () -> restClient.post()
+                .uri(createGroupUrl)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("name", groupName))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (request, clientResponse) -> {
+                    throw KeycloakErrors.toException(clientResponse.getStatusCode().value(), clientResponse.getBody(), "createGroup");
+                })
+                .toBodilessEntity());
+        keyCloakService.groupCreated(groupName);
+    }
+
+    public void assignUserToGroup(String userId, String groupId, String token) {
+        String assignUserToGroupUrl = String.format("%s/admin/realms/%s/users/%s/groups/%s", keycloakProperties.getUrl(), keycloakProperties.getRealm(), userId, groupId);
+
+        call("assignUserToGroup", () -> restClient.put()
+                .uri(assignUserToGroupUrl)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (request, clientResponse) -> {
+                    throw KeycloakErrors.toException(clientResponse.getStatusCode().value(), clientResponse.getBody(), "assignUserToGroup");
+                })
+                .toBodilessEntity());
+        logger.info("User with ID: {} assigned to group with ID: {}", userId, groupId);
+    }
+
+    public UserSearchResponse searchUser(String token, String username) {
+        String searchUserUrl = String.format("%s/admin/realms/test/users?username=%s", keycloakProperties.getUrl(), username);
+
+        logger.debug("Searching for user: {}", username);
+
+        JsonNode users = call("searchUser", () -> restClient.get()
+                .uri(searchUserUrl)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (request, clientResponse) -> {
+                    throw KeycloakErrors.toException(clientResponse.getStatusCode().value(), clientResponse.getBody(), "searchUser");
+                })
+                .body(JsonNode.class));
+        if (users != null) {
+            for (JsonNode user : users) {
+                if (user.get("username").asText().equalsIgnoreCase(username)) {
+                    logger.info("User search completed successfully for username: {}", username);
+                    return new UserSearchResponse(
+                            user.get("id").asText(),
+                            user.get("username").asText(),
+                            user.get("firstName").asText(),
+                            user.get("lastName").asText(),
+                            user.get("email").asText());
+                }
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.dispose();
+        virtualThreads.close();
+    }
+
+    private String createUserAndGetId(String token, String username, String email) {
+        createUser(username, email, token);
+        String userId = getUserId(token, username);
+        if (userId == null) {
+            throw new UserNotFoundException("User not found after creation: " + username);
+        }
+        return userId;
+    }
+
+    private String createGroupAndGetId(String token, String groupName) {
+        createGroup(groupName, token);
+        String groupId = getGroupId(token, groupName);
+        if (groupId == null) {
+            throw new GroupNotFoundException("Group not found after creation: " + groupName);
+        }
+        return groupId;
+    }
+
+    /**
+     * Runs both tasks on their own virtual threads and waits for both. A failure cancels the task still
+     * running, and no task outlives the call.
+     */
+    private Ids both(Callable<String> userTask, Callable<String> groupTask) {
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> userId = scope.submit(userTask);
+            Future<String> groupId = scope.submit(groupTask);
+            try {
+                return new Ids(join(userId), join(groupId));
+            } catch (RuntimeException e) {
+                userId.cancel(true);
+                groupId.cancel(true);
+                throw e;
+            }
+        }
+    }
+
+    private static String join(Future<String> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Keycloak", e);
+        }
+    }
+
+    private <T> T call(String operation, Supplier<T> request) {
+        try {
+            return KeycloakCallEvents.withOperation(operation, request);
+        } catch (RuntimeException e) {
+            errorLog.log(operation, e);
+            throw e;
+        }
+    }
+
+    private record Ids(String userId, String groupId) {
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.keycloakdemo.service;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Priority class of an outbound Keycloak call, used by {@link KeycloakCallScheduler}. Callers tag a chain with
+ * {@code .contextWrite(WorkloadClass.BULK.context())}; untagged calls are {@link #INTERACTIVE}.
+ */
+public enum WorkloadClass {
+    INTERACTIVE,
+    BULK,
+    BACKGROUND;
+
+    private static final String CONTEXT_KEY = WorkloadClass.class.getName();
+
+    public Context context() {
+        return Context.of(CONTEXT_KEY, this);
+    }
+
+    static WorkloadClass from(ContextView contextView) {
+        return contextView.getOrDefault(CONTEXT_KEY, INTERACTIVE);
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.keycloakdemo.controller;
+
+import jdk.jfr.RecordingState;
+import org.example.keycloakdemo.config.JfrProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JfrRecordingEndpointTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withBean(JfrProperties.class)
+            .withUserConfiguration(JfrRecordingEndpoint.class)
+            .withPropertyValues("management.endpoint.jfr.enabled=true", "management.endpoints.web.exposure.include=jfr");
+
+    private JfrProperties jfrProperties;
+    private JfrRecordingEndpoint endpoint;
+
+    @BeforeEach
+    public void setup() {
+        jfrProperties = new JfrProperties();
+        endpoint = new JfrRecordingEndpoint(jfrProperties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        endpoint.close();
+    }
+
+    @Test
+    void testStartStopAndDownload() throws IOException {
+        assertEquals("NONE", endpoint.status().get("state"));
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.download("recording").getStatus());
+
+        assertEquals(WebEndpointResponse.STATUS_OK, endpoint.control("start").getStatus());
+        assertEquals(RecordingState.RUNNING, endpoint.status().get("state"));
+
+        WebEndpointResponse<Resource> download = endpoint.download("recording");
+        assertEquals(WebEndpointResponse.STATUS_OK, download.getStatus());
+        assertTrue(download.getBody().contentLength() > 0);
+
+        assertEquals(WebEndpointResponse.STATUS_OK, endpoint.control("stop").getStatus());
+        assertEquals(RecordingState.STOPPED, endpoint.status().get("state"));
+        assertEquals(WebEndpointResponse.STATUS_OK, endpoint.download("recording").getStatus());
+    }
+
+    @Test
+    void testConflictsAndUnknownAction() {
+        assertEquals(409, endpoint.control("stop").getStatus());
+        endpoint.control("start");
+        assertEquals(409, endpoint.control("start").getStatus());
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.control("pause").getStatus());
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.download("other").getStatus());
+    }
+
+    @Test
+    void testRecordingIsBoundedBySizeAndDuration() throws InterruptedException {
+        jfrProperties.setMaxSize(DataSize.ofMegabytes(1));
+        jfrProperties.setMaxDuration(Duration.ofMillis(300));
+
+        Map<String, Object> status = endpoint.control("start").getBody();
+
+        assertEquals(DataSize.ofMegabytes(1).toBytes(), status.get("maxSize"));
+        assertEquals(Duration.ofMillis(300), status.get("maxDuration"));
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (endpoint.status().get("state") == RecordingState.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(RecordingState.STOPPED, endpoint.status().get("state"));
+    }
+
+    @Test
+    void testEndpointRequiresLoopbackManagementServer() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(JfrRecordingEndpoint.class));
+        contextRunner.withPropertyValues("management.server.port=8082", "management.server.address=0.0.0.0")
+                .run(context -> assertThat(context).doesNotHaveBean(JfrRecordingEndpoint.class));
+        contextRunner.withPropertyValues("management.server.port=8082", "management.server.address=127.0.0.1")
+                .run(context -> assertThat(context).hasSingleBean(JfrRecordingEndpoint.class));
+    }
+}
@@ -1,10 +1,16 @@
 package org.example.keycloakdemo.controller;
 
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.handler.ErrorLogLimiter;
+import org.example.keycloakdemo.handler.GlobalExceptionHandler;
+import org.example.keycloakdemo.handler.KeycloakException;
+import org.example.keycloakdemo.handler.UserNotFoundException;
 import org.example.keycloakdemo.model.UserGroupRequest;
+import org.example.keycloakdemo.model.UserSearchRequest;
 import org.example.keycloakdemo.service.KeyCloakService;
+import org.example.keycloakdemo.service.UserProvisioningService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -13,6 +19,8 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
+import java.util.function.Function;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
@@ -26,7 +34,6 @@ import static org.mockito.Mockito.when;
 @SpringBootTest
 public class KeyCloakControllerTest {
 
-    @InjectMocks
     private KeyCloakController keyCloakController;
 
     @Mock
@@ -35,6 +42,11 @@ public class KeyCloakControllerTest {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
+        when(keyCloakService.withUserId(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            Function<String, Mono<Object>> call = invocation.getArgument(2);
+            return keyCloakService.getUserId(invocation.getArgument(0), invocation.getArgument(1)).flatMap(call);
+        });
+        keyCloakController = new KeyCloakController(new UserProvisioningService(keyCloakService, new KeycloakProperties(), null), null, null);
     }
 
     //@Test
@@ -115,4 +127,16 @@ public class KeyCloakControllerTest {
 
         assertThrows(ResponseStatusException.class, () -> keyCloakController.createUserAndAssignGroup(request).block());
     }
+
+    @Test
+    void testSearchUser_KeycloakErrorIsNotFound() {
+        when(keyCloakService.getKeycloakToken()).thenReturn(Mono.just("token"));
+        when(keyCloakService.searchUser("token", "testuser"))
+                .thenReturn(Mono.error(new KeycloakException(500, "searchUser", "unknown_error", "{\"error\":\"unknown_error\"}")));
+
+        UserNotFoundException exception = assertThrows(UserNotFoundException.class,
+                () -> keyCloakController.searchUser(new UserSearchRequest("testuser")).block());
+        assertEquals(HttpStatus.NOT_FOUND, new GlobalExceptionHandler(new ErrorLogLimiter())
+                .handleUserNotFoundException(exception).getStatusCode());
+    }
 }
@@ -0,0 +1,145 @@
+package org.example.keycloakdemo.controller;
+
+import org.example.keycloakdemo.model.IdLookupEntry;
+import org.example.keycloakdemo.model.IdLookupRequest;
+import org.example.keycloakdemo.model.ProvisioningResult;
+import org.example.keycloakdemo.model.UserGroupRequest;
+import org.example.keycloakdemo.model.UserSearchRequest;
+import org.example.keycloakdemo.model.UserSearchResponse;
+import org.example.keycloakdemo.service.KeyCloakService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@TestPropertySource(properties = {"keycloak.warmup.enabled=false", "keycloak.bulk-concurrency=2"})
+public class KeyCloakRSocketControllerTest {
+
+    @MockBean
+    private KeyCloakService keyCloakService;
+
+    @Autowired
+    private RSocketRequester.Builder requesterBuilder;
+
+    @LocalRSocketServerPort
+    private int port;
+
+    private RSocketRequester requester;
+
+    @BeforeEach
+    public void setup() {
+        requester = requesterBuilder.tcp("localhost", port);
+        when(keyCloakService.getKeycloakToken()).thenReturn(Mono.just("token"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        requester.dispose();
+    }
+
+    @Test
+    void testChannel_FailureDoesNotEndChannelAndConcurrencyIsBounded() {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        when(keyCloakService.withUserId(eq("token"), anyString(), any())).thenAnswer(invocation -> {
+            String username = invocation.getArgument(1);
+            return Mono.defer(() -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                Mono<String> result = "bob".equals(username)
+                        ? Mono.error(new IllegalStateException("Keycloak unavailable"))
+                        : Mono.just("User " + username + " assigned");
+                return Mono.delay(Duration.ofMillis(50)).then(result).doFinally(signal -> active.decrementAndGet());
+            });
+        });
+
+        List<ProvisioningResult> results = requester.route("users.create-and-assign-group.channel")
+                .data(Flux.just("alice", "bob", "carol", "dave", "erin", "frank")
+                        .map(username -> new UserGroupRequest(username, username + "@example.com", "devs")))
+                .retrieveFlux(ProvisioningResult.class)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(6, results.size());
+        assertEquals(5, results.stream().filter(ProvisioningResult::isSuccess).count());
+        ProvisioningResult failed = results.stream().filter(result -> !result.isSuccess()).findFirst().orElseThrow();
+        assertEquals("bob", failed.getUsername());
+        assertEquals("Keycloak unavailable", failed.getMessage());
+        assertTrue(maxActive.get() <= 2);
+    }
+
+    @Test
+    void testChannel_InvalidRequestIsReportedAsResult() {
+        when(keyCloakService.withUserId(eq("token"), anyString(), any())).thenReturn(Mono.just("assigned"));
+
+        List<ProvisioningResult> results = requester.route("users.create-and-assign-group.channel")
+                .data(Flux.just(new UserGroupRequest("alice", "not-an-email", "devs"),
+                        new UserGroupRequest("bob", "bob@example.com", "devs")))
+                .retrieveFlux(ProvisioningResult.class)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(2, results.size());
+        assertFalse(results.stream().filter(result -> "alice".equals(result.getUsername())).findFirst().orElseThrow().isSuccess());
+        assertTrue(results.stream().filter(result -> "bob".equals(result.getUsername())).findFirst().orElseThrow().isSuccess());
+    }
+
+    @Test
+    void testLookupStream_DeduplicatesUsernamesAndReportsFailedLookups() {
+        when(keyCloakService.refreshUserId("token", "alice")).thenReturn(Mono.just("aliceId"));
+        when(keyCloakService.refreshUserId("token", "bob")).thenReturn(Mono.error(new IllegalStateException("Keycloak unavailable")));
+        when(keyCloakService.refreshUserId("token", "ghost")).thenReturn(Mono.empty());
+        when(keyCloakService.getGroupId("token", "devs")).thenReturn(Mono.just("devsId"));
+
+        List<IdLookupEntry> entries = requester.route("ids.lookup.stream")
+                .data(new IdLookupRequest(List.of("alice", "ALICE", "bob", "ghost"), List.of("devs")))
+                .retrieveFlux(IdLookupEntry.class)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(4, entries.size());
+        assertEquals("aliceId", entries.get(0).getId());
+        assertEquals("bob", entries.get(1).getName());
+        assertNull(entries.get(1).getId());
+        assertNotNull(entries.get(1).getError());
+        assertNull(entries.get(2).getId());
+        assertNull(entries.get(2).getError());
+        assertEquals("devsId", entries.get(3).getId());
+    }
+
+    @Test
+    void testSearchUser() {
+        when(keyCloakService.searchUser("token", "alice"))
+                .thenReturn(Mono.just(new UserSearchResponse("aliceId", "alice", "Alice", "Smith", "alice@example.com")));
+
+        UserSearchResponse response = requester.route("users.search")
+                .data(new UserSearchRequest("alice"))
+                .retrieveMono(UserSearchResponse.class)
+                .block(Duration.ofSeconds(10));
+
+        assertEquals("aliceId", response.getId());
+        verify(keyCloakService).searchUser("token", "alice");
+    }
+}
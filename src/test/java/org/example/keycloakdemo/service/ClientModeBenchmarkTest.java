@@ -0,0 +1,141 @@
+package org.example.keycloakdemo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.example.keycloakdemo.config.IdCacheProperties;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.config.SchedulerProperties;
+import org.example.keycloakdemo.handler.ErrorLogLimiter;
+import org.example.keycloakdemo.model.UserGroupRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the same create-and-assign-group load through the reactive chain and the virtual-thread client
+ * against a Keycloak stub with fixed latency, and logs throughput, latency percentiles and heap allocation
+ * for each. Only runs with {@code -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ClientModeBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientModeBenchmarkTest.class);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 2000);
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 64);
+    private static final long LATENCY_MILLIS = Long.getLong("benchmark.latency-ms", 10);
+
+    private MockWebServer mockWebServer;
+    private UserProvisioningService reactive;
+    private UserProvisioningService virtualThreads;
+    private VirtualThreadKeyCloakService virtualThreadKeyCloakService;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                MockResponse response;
+                if (path.contains("/protocol/openid-connect/token")) {
+                    response = json("{\"access_token\":\"token\"}");
+                } else if (path.contains("/users?username=")) {
+                    response = json("[{\"id\":\"userId\",\"username\":\"bench\"}]");
+                } else if (path.contains("/groups?")) {
+                    response = json("[{\"id\":\"groupId\",\"name\":\"bench\",\"path\":\"/bench\"}]");
+                } else if ("PUT".equals(request.getMethod())) {
+                    response = new MockResponse().setResponseCode(204);
+                } else {
+                    response = new MockResponse().setResponseCode(404);
+                }
+                return response.setHeadersDelay(LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        });
+        mockWebServer.start();
+
+        KeycloakProperties keycloakProperties = new KeycloakProperties();
+        keycloakProperties.setUrl(mockWebServer.url("/").toString().replaceAll("/$", ""));
+        keycloakProperties.setRealm("master");
+        keycloakProperties.setClientId("admin-cli");
+        keycloakProperties.setAdminUsername("admin");
+        keycloakProperties.setAdminPassword("admin");
+
+        ErrorLogLimiter errorLog = new ErrorLogLimiter();
+        PersistentIdCache idCache = new PersistentIdCache(new IdCacheProperties(), keycloakProperties);
+        SchedulerProperties schedulerProperties = new SchedulerProperties();
+        schedulerProperties.setEnabled(false);
+        KeycloakCallScheduler callScheduler = new KeycloakCallScheduler(schedulerProperties, new SimpleMeterRegistry());
+
+        KeyCloakService keyCloakService = new KeyCloakService(WebClient.builder(), keycloakProperties, errorLog, idCache, callScheduler);
+        virtualThreadKeyCloakService = new VirtualThreadKeyCloakService(RestClient.builder(), keyCloakService, keycloakProperties,
+                errorLog, idCache, callScheduler);
+        reactive = new UserProvisioningService(keyCloakService, keycloakProperties, null);
+        virtualThreads = new UserProvisioningService(keyCloakService, keycloakProperties, virtualThreadKeyCloakService);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        virtualThreadKeyCloakService.close();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void compareReactiveAndVirtualThreadModes() {
+        run("reactive", reactive, REQUESTS / 4);
+        run("virtual-threads", virtualThreads, REQUESTS / 4);
+
+        Result reactiveResult = run("reactive", reactive, REQUESTS);
+        Result virtualThreadResult = run("virtual-threads", virtualThreads, REQUESTS);
+
+        logger.info("{}", reactiveResult);
+        logger.info("{}", virtualThreadResult);
+        assertEquals(REQUESTS, reactiveResult.completed());
+        assertEquals(REQUESTS, virtualThreadResult.completed());
+    }
+
+    private Result run(String mode, UserProvisioningService service, int requests) {
+        UserGroupRequest request = new UserGroupRequest("bench", "bench@example.com", "bench");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long allocatedBefore = threads.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+        List<Long> latencies = Flux.range(0, requests)
+                .flatMap(i -> service.createUserAndAssignGroup(request).elapsed().map(elapsed -> elapsed.getT1()), CONCURRENCY)
+                .sort()
+                .collectList()
+                .block();
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = threads.getTotalThreadAllocatedBytes() - allocatedBefore;
+
+        return new Result(mode, latencies.size(), latencies.size() * 1_000_000_000.0 / elapsedNanos,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), allocated / Math.max(1, latencies.size()));
+    }
+
+    private static long percentile(List<Long> sortedLatencies, double percentile) {
+        return sortedLatencies.isEmpty() ? 0 : sortedLatencies.get((int) Math.ceil(percentile * sortedLatencies.size()) - 1);
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    private record Result(String mode, int completed, double requestsPerSecond, long p50Millis, long p99Millis,
+                          long allocatedBytesPerRequest) {
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.keycloakdemo.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GroupHierarchyCacheTest {
+
+    private static final Duration MISS_REFRESH_AGE = Duration.ofSeconds(30);
+
+    @Test
+    void testRefresh_ConcurrentMissesShareOneLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<GroupSnapshot> pending = Sinks.one();
+        GroupHierarchyCache cache = new GroupHierarchyCache(token -> {
+            loads.incrementAndGet();
+            return pending.asMono();
+        }, MISS_REFRESH_AGE);
+
+        Mono<String> first = cache.findGroupId("token", "devs").cache();
+        Mono<String> second = cache.findGroupId("token", "devs").cache();
+        first.subscribe();
+        second.subscribe();
+        pending.tryEmitValue(snapshot("devs", "devsId", Instant.now()));
+
+        assertEquals("devsId", first.block());
+        assertEquals("devsId", second.block());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testInvalidate_DropsLoadStartedBeforeIt() {
+        Sinks.One<GroupSnapshot> pending = Sinks.one();
+        GroupHierarchyCache cache = new GroupHierarchyCache(token -> pending.asMono(), MISS_REFRESH_AGE);
+
+        Mono<GroupSnapshot> load = cache.refresh("token").cache();
+        load.subscribe();
+        cache.invalidate();
+        pending.tryEmitValue(snapshot("devs", "devsId", Instant.now()));
+
+        assertEquals("devsId", load.block().resolve("devs"));
+        assertNull(cache.peek());
+    }
+
+    @Test
+    void testFindGroupId_MissReloadsOnlyStaleSnapshot() {
+        AtomicInteger loads = new AtomicInteger();
+        GroupHierarchyCache cache = new GroupHierarchyCache(token -> Mono.fromSupplier(() -> loads.incrementAndGet() == 1
+                ? snapshot("devs", "devsId", Instant.now().minus(MISS_REFRESH_AGE).minusSeconds(1))
+                : snapshot("ops", "opsId", Instant.now())), MISS_REFRESH_AGE);
+
+        cache.refresh("token").block();
+        assertEquals("opsId", cache.findGroupId("token", "ops").block());
+        assertEquals(2, loads.get());
+
+        assertNull(cache.findGroupId("token", "missing").block());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testRefresh_SharedLoadRunsAsInteractive() {
+        AtomicReference<WorkloadClass> loadedAs = new AtomicReference<>();
+        GroupHierarchyCache cache = new GroupHierarchyCache(token -> Mono.deferContextual(contextView -> {
+            loadedAs.set(WorkloadClass.from(contextView));
+            return Mono.just(snapshot("devs", "devsId", Instant.now()));
+        }), MISS_REFRESH_AGE);
+
+        cache.refresh("token").contextWrite(WorkloadClass.BACKGROUND.context()).block();
+
+        assertEquals(WorkloadClass.INTERACTIVE, loadedAs.get());
+    }
+
+    private static GroupSnapshot snapshot(String name, String id, Instant loadedAt) {
+        return GroupSnapshot.of(List.of(Map.of("id", id, "name", name, "path", "/" + name)), loadedAt);
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.keycloakdemo.service;
+
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.model.BulkMembershipResponse;
+import org.example.keycloakdemo.model.MembershipAction;
+import org.example.keycloakdemo.model.MembershipOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GroupMembershipServiceTest {
+
+    @Mock
+    private KeyCloakService keyCloakService;
+
+    private GroupMembershipService groupMembershipService;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        groupMembershipService = new GroupMembershipService(keyCloakService, new KeycloakProperties());
+        when(keyCloakService.getKeycloakToken()).thenReturn(Mono.just("token"));
+        when(keyCloakService.withUserId(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            Function<String, Mono<Object>> call = invocation.getArgument(2);
+            return keyCloakService.getUserId(invocation.getArgument(0), invocation.getArgument(1)).flatMap(call);
+        });
+    }
+
+    @Test
+    void testUpdateGroupMembers_SkipsExistingMembersAndDuplicates() {
+        when(keyCloakService.getGroupId("token", "devs")).thenReturn(Mono.just("groupId"));
+        when(keyCloakService.getUserId("token", "alice")).thenReturn(Mono.just("aliceId"));
+        when(keyCloakService.getUserId("token", "bob")).thenReturn(Mono.just("bobId"));
+        when(keyCloakService.getUserId("token", "ghost")).thenReturn(Mono.empty());
+        when(keyCloakService.getGroupMembers("token", "groupId")).thenReturn(Mono.just(Map.of("alice", "aliceId")));
+        when(keyCloakService.assignUserToGroup("bobId", "groupId", "token")).thenReturn(Mono.empty());
+
+        BulkMembershipResponse response = groupMembershipService
+                .updateGroupMembers("devs", List.of("alice", "bob", "BOB", "ghost"), MembershipAction.ADD)
+                .block();
+
+        assertEquals(3, response.getResults().size());
+        assertEquals(1L, response.getSummary().get(MembershipOutcome.ADDED));
+        assertEquals(1L, response.getSummary().get(MembershipOutcome.ALREADY_MEMBER));
+        assertEquals(1L, response.getSummary().get(MembershipOutcome.USER_NOT_FOUND));
+
+        verify(keyCloakService).getKeycloakToken();
+        verify(keyCloakService, times(1)).getUserId("token", "bob");
+        verify(keyCloakService).assignUserToGroup("bobId", "groupId", "token");
+        verify(keyCloakService, never()).assignUserToGroup("aliceId", "groupId", "token");
+    }
+
+    @Test
+    void testUpdateUserGroups_RemovesOnlyCurrentMemberships() {
+        when(keyCloakService.getUserId("token", "alice")).thenReturn(Mono.just("aliceId"));
+        when(keyCloakService.getGroupId("token", "devs")).thenReturn(Mono.just("devsId"));
+        when(keyCloakService.getGroupId("token", "ops")).thenReturn(Mono.just("opsId"));
+        when(keyCloakService.getUserGroupIds("token", "aliceId")).thenReturn(Mono.just(Set.of("devsId")));
+        when(keyCloakService.removeUserFromGroup("aliceId", "devsId", "token")).thenReturn(Mono.empty());
+
+        BulkMembershipResponse response = groupMembershipService
+                .updateUserGroups("alice", List.of("devs", "ops"), MembershipAction.REMOVE)
+                .block();
+
+        assertEquals(1L, response.getSummary().get(MembershipOutcome.REMOVED));
+        assertEquals(1L, response.getSummary().get(MembershipOutcome.NOT_MEMBER));
+        verify(keyCloakService).removeUserFromGroup("aliceId", "devsId", "token");
+        verify(keyCloakService, never()).removeUserFromGroup("aliceId", "opsId", "token");
+    }
+
+    @Test
+    void testUpdateGroupMembers_MatchesMembersByUsername() {
+        when(keyCloakService.getGroupId("token", "devs")).thenReturn(Mono.just("devsId"));
+        when(keyCloakService.getUserId("token", "alice")).thenReturn(Mono.just("staleId"));
+        when(keyCloakService.getGroupMembers("token", "devsId")).thenReturn(Mono.just(Map.of("alice", "aliceId")));
+        when(keyCloakService.removeUserFromGroup("aliceId", "devsId", "token")).thenReturn(Mono.empty());
+
+        BulkMembershipResponse response = groupMembershipService
+                .updateGroupMembers("devs", List.of("Alice"), MembershipAction.REMOVE)
+                .block();
+
+        assertEquals(1L, response.getSummary().get(MembershipOutcome.REMOVED));
+        verify(keyCloakService).removeUserFromGroup("aliceId", "devsId", "token");
+        verify(keyCloakService, never()).getUserId(anyString(), anyString());
+    }
+
+    @Test
+    void testUpdateGroupMembers_GroupNotFound() {
+        when(keyCloakService.getGroupId("token", "missing")).thenReturn(Mono.empty());
+
+        BulkMembershipResponse response = groupMembershipService
+                .updateGroupMembers("missing", List.of("alice", "bob"), MembershipAction.ADD)
+                .block();
+
+        assertEquals(2L, response.getSummary().get(MembershipOutcome.GROUP_NOT_FOUND));
+        verify(keyCloakService, never()).getUserId(anyString(), anyString());
+    }
+
+    @Test
+    void testUpdateGroupMembers_FailedLookupOnlyFailsItsPair() {
+        when(keyCloakService.getGroupId("token", "devs")).thenReturn(Mono.just("devsId"));
+        when(keyCloakService.getGroupMembers("token", "devsId")).thenReturn(Mono.just(Map.of()));
+        when(keyCloakService.getUserId("token", "alice")).thenReturn(Mono.just("aliceId"));
+        when(keyCloakService.getUserId("token", "bob")).thenReturn(Mono.error(new IllegalStateException("Keycloak unavailable")));
+        when(keyCloakService.assignUserToGroup("aliceId", "devsId", "token")).thenReturn(Mono.empty());
+
+        BulkMembershipResponse response = groupMembershipService
+                .updateGroupMembers("devs", List.of("alice", "bob"), MembershipAction.ADD)
+                .block();
+
+        assertEquals(1L, response.getSummary().get(MembershipOutcome.ADDED));
+        assertEquals(1L, response.getSummary().get(MembershipOutcome.FAILED));
+        verify(keyCloakService).assignUserToGroup("aliceId", "devsId", "token");
+    }
+
+    @Test
+    void testUpdateUserGroups_FailedMembershipReadFailsEveryPair() {
+        when(keyCloakService.getUserId("token", "alice")).thenReturn(Mono.just("aliceId"));
+        when(keyCloakService.getGroupId("token", "devs")).thenReturn(Mono.just("devsId"));
+        when(keyCloakService.getGroupId("token", "ops")).thenReturn(Mono.just("opsId"));
+        when(keyCloakService.getUserGroupIds("token", "aliceId")).thenReturn(Mono.error(new IllegalStateException("Keycloak unavailable")));
+
+        BulkMembershipResponse response = groupMembershipService
+                .updateUserGroups("alice", List.of("devs", "ops"), MembershipAction.ADD)
+                .block();
+
+        assertEquals(2L, response.getSummary().get(MembershipOutcome.FAILED));
+        verify(keyCloakService, never()).assignUserToGroup(anyString(), anyString(), anyString());
+    }
+}
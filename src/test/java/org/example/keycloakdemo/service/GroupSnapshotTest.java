@@ -0,0 +1,37 @@
+package org.example.keycloakdemo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GroupSnapshotTest {
+
+    private final GroupSnapshot snapshot = GroupSnapshot.of(List.of(
+            Map.of("id", "org", "name", "org", "path", "/org"),
+            Map.of("id", "team", "name", "team", "path", "/team"),
+            Map.of("id", "org-team", "name", "team", "path", "/org/team"),
+            Map.of("id", "org-team-sub", "name", "sub", "path", "/org/team/sub")
+    ));
+
+    @Test
+    void testResolve_ByFullPath() {
+        assertEquals("org-team", snapshot.resolve("/org/team"));
+        assertEquals("org-team-sub", snapshot.resolve("/org/team/sub"));
+    }
+
+    @Test
+    void testResolve_ByNamePrefersShallowestGroup() {
+        assertEquals("team", snapshot.resolve("team"));
+        assertEquals("org-team-sub", snapshot.resolve("sub"));
+    }
+
+    @Test
+    void testResolve_NoPrefixMatch() {
+        assertNull(snapshot.resolve("te"));
+        assertNull(snapshot.resolve("/org/te"));
+    }
+}
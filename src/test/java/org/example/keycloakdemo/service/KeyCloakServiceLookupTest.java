@@ -0,0 +1,125 @@
+package org.example.keycloakdemo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.example.keycloakdemo.config.IdCacheProperties;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.config.SchedulerProperties;
+import org.example.keycloakdemo.handler.ErrorLogLimiter;
+import org.example.keycloakdemo.model.IdLookupResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeyCloakServiceLookupTest {
+
+    private MockWebServer mockWebServer;
+    private KeyCloakService keyCloakService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.equals("/admin/realms/master/users/count")) {
+                    return json("1");
+                }
+                if (path.startsWith("/admin/realms/master/users?briefRepresentation=true")) {
+                    return json("[{\"id\":\"aliceId\",\"username\":\"alice\"}]");
+                }
+                if (path.startsWith("/admin/realms/master/users?username=forbidden")) {
+                    return new MockResponse().setResponseCode(403);
+                }
+                if (path.startsWith("/admin/realms/master/users?username=alice")) {
+                    return json("[{\"id\":\"aliceId\",\"username\":\"alice\"}]");
+                }
+                if (path.startsWith("/admin/realms/master/users?username=")) {
+                    return json("[]");
+                }
+                if (path.startsWith("/admin/realms/master/groups?")) {
+                    return json("[{\"id\":\"orgId\",\"name\":\"org\",\"path\":\"/org\",\"subGroups\":"
+                            + "[{\"id\":\"teamId\",\"name\":\"team\",\"path\":\"/org/team\"}]}]");
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        mockWebServer.start();
+
+        KeycloakProperties keycloakProperties = new KeycloakProperties();
+        keycloakProperties.setUrl(mockWebServer.url("/").toString().replaceAll("/$", ""));
+        keycloakProperties.setRealm("master");
+
+        keyCloakService = new KeyCloakService(WebClient.builder(), keycloakProperties, new ErrorLogLimiter(),
+                new PersistentIdCache(new IdCacheProperties(), keycloakProperties),
+                new KeycloakCallScheduler(new SchedulerProperties(), new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void testLookupIds_DeduplicatesAndReportsMissingNames() {
+        IdLookupResponse response = keyCloakService
+                .lookupIds("token", List.of("alice", "ALICE", "ghost"), List.of("/org/team", "org", "nope"))
+                .block();
+
+        assertEquals("aliceId", response.getUsers().get("alice"));
+        assertEquals(1, response.getUsers().size());
+        assertEquals(List.of("ghost"), response.getMissingUsers());
+        assertEquals("teamId", response.getGroups().get("/org/team"));
+        assertEquals("orgId", response.getGroups().get("org"));
+        assertEquals(List.of("nope"), response.getMissingGroups());
+        assertEquals(3, mockWebServer.getRequestCount());
+    }
+
+    @Test
+    void testLookupIds_FailedNameDoesNotFailTheBatch() {
+        IdLookupResponse response = keyCloakService
+                .lookupIds("token", List.of("alice", "forbidden", "ghost"), List.of())
+                .block();
+
+        assertEquals("aliceId", response.getUsers().get("alice"));
+        assertEquals(List.of("ghost"), response.getMissingUsers());
+        assertEquals(Set.of("forbidden"), response.getFailedUsers().keySet());
+        assertTrue(response.getFailedGroups().isEmpty());
+    }
+
+    @Test
+    void testLookupIds_LargeBatchListsUsersOnce() {
+        List<String> usernames = new ArrayList<>();
+        usernames.add("ALICE");
+        for (int i = 0; i < 60; i++) {
+            usernames.add("user" + i);
+        }
+
+        IdLookupResponse response = keyCloakService.lookupIds("token", usernames, List.of()).block();
+
+        assertEquals("aliceId", response.getUsers().get("ALICE"));
+        assertEquals(60, response.getMissingUsers().size());
+        assertTrue(response.getFailedUsers().isEmpty());
+        assertEquals(2, mockWebServer.getRequestCount());
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse()
+                .setResponseCode(200)
+                .setBody(body)
+                .addHeader("Content-Type", "application/json");
+    }
+}
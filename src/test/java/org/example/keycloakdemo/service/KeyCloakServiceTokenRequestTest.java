@@ -0,0 +1,94 @@
+package org.example.keycloakdemo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.keycloakdemo.config.IdCacheProperties;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.config.SchedulerProperties;
+import org.example.keycloakdemo.handler.ErrorLogLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeyCloakServiceTokenRequestTest {
+
+    private static final String TOKEN_URL = "http://localhost:8080/realms/master/protocol/openid-connect/token";
+
+    private KeycloakProperties keycloakProperties;
+
+    @BeforeEach
+    public void setup() {
+        keycloakProperties = new KeycloakProperties();
+        keycloakProperties.setRealm("master");
+        keycloakProperties.setClientId("provisioning-service");
+        keycloakProperties.setAdminUsername("admin");
+        keycloakProperties.setAdminPassword("admin");
+    }
+
+    @Test
+    void testPasswordGrant() {
+        MultiValueMap<String, String> form = keyCloakService().tokenRequestParameters(TOKEN_URL);
+
+        assertEquals("password", form.getFirst("grant_type"));
+        assertEquals("admin", form.getFirst("username"));
+        assertEquals("admin", form.getFirst("password"));
+        assertFalse(form.containsKey("client_secret"));
+    }
+
+    @Test
+    void testClientCredentialsWithSecret() {
+        keycloakProperties.setGrantType("client_credentials");
+        keycloakProperties.setClientSecret("s3cr3t");
+
+        MultiValueMap<String, String> form = keyCloakService().tokenRequestParameters(TOKEN_URL);
+
+        assertEquals("client_credentials", form.getFirst("grant_type"));
+        assertEquals("provisioning-service", form.getFirst("client_id"));
+        assertEquals("s3cr3t", form.getFirst("client_secret"));
+        assertFalse(form.containsKey("username"));
+        assertFalse(form.containsKey("password"));
+    }
+
+    @Test
+    void testClientCredentialsWithoutSecret() {
+        keycloakProperties.setGrantType("client_credentials");
+
+        assertThrows(IllegalStateException.class, () -> keyCloakService().tokenRequestParameters(TOKEN_URL));
+    }
+
+    @Test
+    void testClientCredentialsWithJwtAssertion() {
+        keycloakProperties.setGrantType("client_credentials");
+        keycloakProperties.setClientAuthentication("jwt");
+        keycloakProperties.setClientSecret("s3cr3t");
+
+        MultiValueMap<String, String> form = keyCloakService().tokenRequestParameters(TOKEN_URL);
+
+        assertEquals("urn:ietf:params:oauth:client-assertion-type:jwt-bearer", form.getFirst("client_assertion_type"));
+        assertEquals(3, form.getFirst("client_assertion").split("\\.").length);
+        assertFalse(form.containsKey("client_secret"));
+    }
+
+    @Test
+    void testUnknownGrantTypeOrAuthenticationFailsAtStartup() {
+        keycloakProperties.setGrantType("client-credentials");
+        IllegalStateException grantType = assertThrows(IllegalStateException.class, this::keyCloakService);
+        assertTrue(grantType.getMessage().contains("keycloak.grant-type"));
+
+        keycloakProperties.setGrantType("client_credentials");
+        keycloakProperties.setClientAuthentication("private_key_jwt");
+        IllegalStateException clientAuthentication = assertThrows(IllegalStateException.class, this::keyCloakService);
+        assertTrue(clientAuthentication.getMessage().contains("keycloak.client-authentication"));
+    }
+
+    private KeyCloakService keyCloakService() {
+        return new KeyCloakService(WebClient.builder(), keycloakProperties, new ErrorLogLimiter(),
+                new PersistentIdCache(new IdCacheProperties(), keycloakProperties),
+                new KeycloakCallScheduler(new SchedulerProperties(), new SimpleMeterRegistry()));
+    }
+}
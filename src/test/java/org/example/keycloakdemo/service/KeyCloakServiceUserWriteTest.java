@@ -0,0 +1,81 @@
+package org.example.keycloakdemo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.example.keycloakdemo.config.IdCacheProperties;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.config.SchedulerProperties;
+import org.example.keycloakdemo.handler.ErrorLogLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeyCloakServiceUserWriteTest {
+
+    private MockWebServer mockWebServer;
+    private KeyCloakService keyCloakService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+
+        KeycloakProperties keycloakProperties = new KeycloakProperties();
+        keycloakProperties.setUrl(mockWebServer.url("/").toString().replaceAll("/$", ""));
+        keycloakProperties.setRealm("master");
+
+        keyCloakService = new KeyCloakService(WebClient.builder(), keycloakProperties, new ErrorLogLimiter(),
+                new PersistentIdCache(new IdCacheProperties(), keycloakProperties),
+                new KeycloakCallScheduler(new SchedulerProperties(), new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void testCreateUser_ReturnsIdFromLocation() {
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(201)
+                .addHeader("Location", mockWebServer.url("/admin/realms/master/users/carolId")));
+
+        assertEquals("carolId", keyCloakService.createUser("carol", "carol@example.com", "token").block());
+    }
+
+    @Test
+    void testCreateGroup_WithoutLocationCompletesEmpty() {
+        mockWebServer.enqueue(new MockResponse().setResponseCode(201));
+
+        assertNull(keyCloakService.createGroup("ops", "token").block());
+    }
+
+    @Test
+    void testUpdateUserEmail_WritesFullRepresentation() throws InterruptedException {
+        mockWebServer.enqueue(new MockResponse()
+                .setResponseCode(200)
+                .setBody("{\"id\":\"aliceId\",\"username\":\"alice\",\"firstName\":\"Alice\",\"enabled\":true,\"email\":\"old@example.com\"}")
+                .addHeader("Content-Type", "application/json"));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(204));
+
+        keyCloakService.updateUserEmail("aliceId", "alice@example.com", "token").block();
+
+        RecordedRequest read = mockWebServer.takeRequest();
+        RecordedRequest write = mockWebServer.takeRequest();
+        assertEquals("GET", read.getMethod());
+        assertEquals("PUT", write.getMethod());
+        String body = write.getBody().readUtf8();
+        assertTrue(body.contains("\"email\":\"alice@example.com\""));
+        assertTrue(body.contains("\"firstName\":\"Alice\""));
+        assertTrue(body.contains("\"enabled\":true"));
+    }
+}
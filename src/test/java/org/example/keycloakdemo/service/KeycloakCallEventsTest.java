@@ -0,0 +1,95 @@
+package org.example.keycloakdemo.service;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class KeycloakCallEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFilter_RecordsCallAndTokenEvents() throws IOException {
+        KeycloakProperties keycloakProperties = new KeycloakProperties();
+        keycloakProperties.setRealm("master");
+        ClientRequest userLookup = ClientRequest.create(HttpMethod.GET, URI.create("http://keycloak/admin/realms/master/users?username=alice&exact=true"))
+                .attribute(KeycloakCallEvents.OPERATION, "getUserId")
+                .build();
+        ClientRequest token = ClientRequest.create(HttpMethod.POST, URI.create("http://keycloak/realms/master/protocol/openid-connect/token"))
+                .attribute(KeycloakCallEvents.OPERATION, "getToken")
+                .build();
+        Path file = tempDir.resolve("keycloak.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(KeycloakCallEvent.class);
+            recording.enable(KeycloakTokenEvent.class);
+            recording.start();
+            KeycloakCallEvents.filter(keycloakProperties)
+                    .filter(userLookup, request -> Mono.just(ClientResponse.create(HttpStatus.OK).header("Content-Length", "42").build()))
+                    .contextWrite(WorkloadClass.BULK.context())
+                    .block();
+            KeycloakCallEvents.filter(keycloakProperties)
+                    .filter(token, request -> Mono.just(ClientResponse.create(HttpStatus.UNAUTHORIZED).build()))
+                    .block();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent call = events.stream().filter(event -> event.getEventType().getName().equals("org.example.keycloakdemo.KeycloakCall")).findFirst().orElseThrow();
+        RecordedEvent tokenEvent = events.stream().filter(event -> event.getEventType().getName().equals("org.example.keycloakdemo.KeycloakToken")).findFirst().orElseThrow();
+
+        assertEquals("getUserId", call.getString("operation"));
+        assertEquals("master", call.getString("realm"));
+        assertEquals("/admin/realms/master/users?username=alice&exact=true", call.getString("path"));
+        assertEquals("BULK", call.getString("workloadClass"));
+        assertEquals(200, call.getInt("status"));
+        assertEquals(42, call.getLong("bytes"));
+        assertEquals(401, tokenEvent.getInt("status"));
+        assertEquals("password", tokenEvent.getString("grantType"));
+    }
+
+    @Test
+    void testFilter_RecordsCancelledCall() throws IOException {
+        KeycloakProperties keycloakProperties = new KeycloakProperties();
+        keycloakProperties.setRealm("master");
+        ClientRequest groupLoad = ClientRequest.create(HttpMethod.GET, URI.create("http://keycloak/admin/realms/master/groups"))
+                .attribute(KeycloakCallEvents.OPERATION, "list")
+                .build();
+        Path file = tempDir.resolve("cancelled.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(KeycloakCallEvent.class);
+            recording.start();
+            KeycloakCallEvents.filter(keycloakProperties)
+                    .filter(groupLoad, request -> Mono.never())
+                    .timeout(Duration.ofMillis(50), Mono.empty())
+                    .block();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        RecordedEvent call = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("org.example.keycloakdemo.KeycloakCall"))
+                .findFirst().orElseThrow();
+        assertEquals("list", call.getString("operation"));
+        assertEquals(0, call.getInt("status"));
+    }
+}
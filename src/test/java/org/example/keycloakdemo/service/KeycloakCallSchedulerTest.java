@@ -0,0 +1,94 @@
+package org.example.keycloakdemo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.keycloakdemo.config.SchedulerProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class KeycloakCallSchedulerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SchedulerProperties schedulerProperties;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        schedulerProperties = new SchedulerProperties();
+    }
+
+    @Test
+    void testAcquire_InteractiveOvertakesQueuedBulkWork() {
+        schedulerProperties.setMaxConcurrency(1);
+        KeycloakCallScheduler scheduler = new KeycloakCallScheduler(schedulerProperties, meterRegistry);
+        List<String> admitted = new ArrayList<>();
+        List<KeycloakCallScheduler.Permit> permits = new ArrayList<>();
+
+        scheduler.acquire(WorkloadClass.BULK).subscribe(permit -> {
+            admitted.add("bulk-0");
+            permits.add(permit);
+        });
+        scheduler.acquire(WorkloadClass.BULK).subscribe(permit -> {
+            admitted.add("bulk-1");
+            permits.add(permit);
+        });
+        scheduler.acquire(WorkloadClass.INTERACTIVE).subscribe(permit -> {
+            admitted.add("interactive");
+            permits.add(permit);
+        });
+        assertEquals(1.0, queueDepth(WorkloadClass.BULK));
+        assertEquals(1.0, queueDepth(WorkloadClass.INTERACTIVE));
+
+        permits.getFirst().release().block();
+        permits.get(1).release().block();
+
+        assertEquals(List.of("bulk-0", "interactive", "bulk-1"), admitted);
+        assertEquals(0.0, queueDepth(WorkloadClass.BULK));
+        assertEquals(3, meterRegistry.get("keycloak.scheduler.wait").timers().stream().mapToLong(timer -> timer.count()).sum());
+    }
+
+    @Test
+    void testAcquire_ClassCapHoldsBackWorkWhileSlotsAreFree() {
+        KeycloakCallScheduler scheduler = new KeycloakCallScheduler(schedulerProperties, meterRegistry);
+        List<KeycloakCallScheduler.Permit> permits = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            scheduler.acquire(WorkloadClass.BACKGROUND).subscribe(permits::add);
+        }
+        scheduler.acquire(WorkloadClass.INTERACTIVE).subscribe(permits::add);
+
+        assertEquals(3, permits.size());
+        assertEquals(1.0, queueDepth(WorkloadClass.BACKGROUND));
+
+        permits.getFirst().release().block();
+        permits.getFirst().release().block();
+
+        assertEquals(4, permits.size());
+        assertEquals(2.0, meterRegistry.get("keycloak.scheduler.active").tag("class", "background").gauge().value());
+    }
+
+    @Test
+    void testAcquire_CancelledWaiterLeavesQueue() {
+        schedulerProperties.setMaxConcurrency(1);
+        KeycloakCallScheduler scheduler = new KeycloakCallScheduler(schedulerProperties, meterRegistry);
+        List<KeycloakCallScheduler.Permit> permits = new ArrayList<>();
+
+        scheduler.acquire(WorkloadClass.INTERACTIVE).subscribe(permits::add);
+        Disposable waiting = scheduler.acquire(WorkloadClass.BULK).subscribe(permits::add);
+        waiting.dispose();
+        permits.getFirst().release().block();
+
+        assertEquals(1, permits.size());
+        assertEquals(0.0, queueDepth(WorkloadClass.BULK));
+        assertEquals(0.0, meterRegistry.get("keycloak.scheduler.active").tag("class", "interactive").gauge().value());
+    }
+
+    private double queueDepth(WorkloadClass workloadClass) {
+        return meterRegistry.get("keycloak.scheduler.queue.depth").tag("class", workloadClass.name().toLowerCase()).gauge().value();
+    }
+}
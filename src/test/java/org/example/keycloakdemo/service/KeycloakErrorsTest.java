@@ -0,0 +1,79 @@
+package org.example.keycloakdemo.service;
+
+import org.example.keycloakdemo.handler.KeycloakException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.ClientResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeycloakErrorsTest {
+
+    @Test
+    void testToException_ConflictIsStacklessWithErrorCode() {
+        ClientResponse response = ClientResponse.create(HttpStatus.CONFLICT)
+                .body("{\"errorMessage\":\"User exists with same username\"}")
+                .build();
+
+        KeycloakException exception = KeycloakErrors.toException(response, "createUser").block();
+
+        assertEquals(409, exception.getStatus());
+        assertEquals("createUser", exception.getOperation());
+        assertEquals("User exists with same username", exception.getErrorCode());
+        assertTrue(exception.isExpected());
+        assertEquals(0, exception.getStackTrace().length);
+        assertFalse(KeycloakErrors.isTransient(exception));
+    }
+
+    @Test
+    void testToException_BodyExcerptIsBounded() {
+        ClientResponse response = ClientResponse.create(HttpStatus.BAD_GATEWAY)
+                .body("x".repeat(100_000))
+                .build();
+
+        KeycloakException exception = KeycloakErrors.toException(response, "getUserId").block();
+
+        assertTrue(exception.getBodyExcerpt().length() <= 512);
+        assertFalse(exception.isExpected());
+        assertTrue(KeycloakErrors.isTransient(exception));
+    }
+
+    @Test
+    void testRetryTransient_RetriesServerErrorsOnly() {
+        AtomicInteger calls = new AtomicInteger();
+        String result = KeycloakErrors.retryTransient("getUserId", Duration.ofMillis(1), () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new KeycloakException(503, "getUserId", null, "");
+            }
+            return "aliceId";
+        });
+
+        assertEquals("aliceId", result);
+        assertEquals(3, calls.get());
+
+        AtomicInteger notFoundCalls = new AtomicInteger();
+        assertThrows(KeycloakException.class, () -> KeycloakErrors.retryTransient("getUserId", Duration.ofMillis(1), () -> {
+            notFoundCalls.incrementAndGet();
+            throw new KeycloakException(404, "getUserId", null, "");
+        }));
+        assertEquals(1, notFoundCalls.get());
+    }
+
+    @Test
+    void testRetryTransient_GivesUpAfterThreeRetries() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ResourceAccessException.class, () -> KeycloakErrors.retryTransient("getUserId", Duration.ofMillis(1), () -> {
+            calls.incrementAndGet();
+            throw new ResourceAccessException("Connection refused");
+        }));
+        assertEquals(4, calls.get());
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.keycloakdemo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.example.keycloakdemo.config.IdCacheProperties;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.config.SchedulerProperties;
+import org.example.keycloakdemo.config.WarmupProperties;
+import org.example.keycloakdemo.handler.ErrorLogLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class KeycloakWarmupTest {
+
+    @Mock
+    private KeyCloakService keyCloakService;
+
+    private WarmupProperties warmupProperties;
+    private KeycloakWarmup keycloakWarmup;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        warmupProperties = new WarmupProperties();
+        warmupProperties.setRequests(2);
+        keycloakWarmup = new KeycloakWarmup(keyCloakService, warmupProperties);
+
+        when(keyCloakService.getKeycloakToken()).thenReturn(Mono.just("token"));
+        when(keyCloakService.refreshGroupHierarchy("token")).thenReturn(Mono.just(GroupSnapshot.of(List.of())));
+        when(keyCloakService.getUserId(anyString(), anyString())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void testRun_PingsWithConfiguredParallelism() {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        when(keyCloakService.pingRealm()).thenReturn(Mono.defer(() -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            return Mono.delay(Duration.ofMillis(100)).doFinally(signal -> active.decrementAndGet()).then();
+        }));
+
+        keycloakWarmup.run(null);
+
+        verify(keyCloakService, times(4)).pingRealm();
+        assertEquals(4, maxActive.get());
+    }
+
+    @Test
+    void testRun_PreloadsGroupHierarchy() {
+        when(keyCloakService.pingRealm()).thenReturn(Mono.empty());
+
+        keycloakWarmup.run(null);
+
+        verify(keyCloakService).refreshGroupHierarchy("token");
+        verify(keyCloakService, times(2)).getUserId(anyString(), anyString());
+    }
+
+    @Test
+    void testRun_SlowKeycloakHitsTimeoutWithoutFailing() {
+        warmupProperties.setTimeout(Duration.ofMillis(200));
+        when(keyCloakService.pingRealm()).thenReturn(Mono.never());
+
+        long start = System.nanoTime();
+        keycloakWarmup.run(null);
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+        verify(keyCloakService, never()).refreshGroupHierarchy(anyString());
+    }
+
+    @Test
+    void testRun_PingsAreNotHeldToBackgroundLimit() throws IOException {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        MockWebServer mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                Thread.sleep(200);
+                active.decrementAndGet();
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        mockWebServer.start();
+        try {
+            KeycloakProperties keycloakProperties = new KeycloakProperties();
+            keycloakProperties.setUrl(mockWebServer.url("/").toString().replaceAll("/$", ""));
+            keycloakProperties.setRealm("master");
+            SchedulerProperties schedulerProperties = new SchedulerProperties();
+            schedulerProperties.limits(WorkloadClass.BACKGROUND).setMaxConcurrency(2);
+            KeyCloakService realKeyCloakService = new KeyCloakService(WebClient.builder(), keycloakProperties, new ErrorLogLimiter(),
+                    new PersistentIdCache(new IdCacheProperties(), keycloakProperties),
+                    new KeycloakCallScheduler(schedulerProperties, new SimpleMeterRegistry()));
+            warmupProperties.setRequests(0);
+
+            new KeycloakWarmup(realKeyCloakService, warmupProperties).run(null);
+
+            assertEquals(4, maxActive.get());
+        } finally {
+            mockWebServer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.keycloakdemo.service;
+
+import org.example.keycloakdemo.config.IdCacheProperties;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PersistentIdCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private IdCacheProperties idCacheProperties;
+    private KeycloakProperties keycloakProperties;
+
+    @BeforeEach
+    public void setup() {
+        idCacheProperties = new IdCacheProperties();
+        idCacheProperties.setEnabled(true);
+        idCacheProperties.setDirectory(directory.toString());
+        keycloakProperties = new KeycloakProperties();
+        keycloakProperties.setRealm("master");
+    }
+
+    @Test
+    void testEntriesSurviveRestart() {
+        PersistentIdCache cache = new PersistentIdCache(idCacheProperties, keycloakProperties);
+        cache.put(PersistentIdCache.Kind.USER, "Alice", "aliceId");
+        cache.put(PersistentIdCache.Kind.GROUP, "devs", "devsId");
+        cache.put(PersistentIdCache.Kind.GROUP, "ops", "opsId");
+        cache.remove(PersistentIdCache.Kind.GROUP, "ops");
+        cache.close();
+
+        PersistentIdCache restarted = new PersistentIdCache(idCacheProperties, keycloakProperties);
+        assertEquals("aliceId", restarted.get(PersistentIdCache.Kind.USER, "alice"));
+        assertEquals("devsId", restarted.get(PersistentIdCache.Kind.GROUP, "devs"));
+        assertNull(restarted.get(PersistentIdCache.Kind.GROUP, "ops"));
+        assertNull(restarted.get(PersistentIdCache.Kind.GROUP, "Devs"));
+    }
+
+    @Test
+    void testLogIsReplayedWithoutCompaction() {
+        PersistentIdCache cache = new PersistentIdCache(idCacheProperties, keycloakProperties);
+        cache.put(PersistentIdCache.Kind.USER, "bob", "bobId");
+        cache.flush();
+
+        PersistentIdCache second = new PersistentIdCache(idCacheProperties, keycloakProperties);
+        assertEquals("bobId", second.get(PersistentIdCache.Kind.USER, "bob"));
+    }
+
+    @Test
+    void testExpiredEntriesAreIgnored() {
+        idCacheProperties.setUserTtl(Duration.ofMillis(-1));
+        PersistentIdCache cache = new PersistentIdCache(idCacheProperties, keycloakProperties);
+        cache.put(PersistentIdCache.Kind.USER, "carol", "carolId");
+
+        assertNull(cache.get(PersistentIdCache.Kind.USER, "carol"));
+    }
+
+    @Test
+    void testDisabledCacheIsNoOp() {
+        idCacheProperties.setEnabled(false);
+        PersistentIdCache cache = new PersistentIdCache(idCacheProperties, keycloakProperties);
+        cache.put(PersistentIdCache.Kind.USER, "dave", "daveId");
+
+        assertNull(cache.get(PersistentIdCache.Kind.USER, "dave"));
+    }
+}
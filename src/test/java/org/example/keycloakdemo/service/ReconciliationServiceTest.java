@@ -0,0 +1,156 @@
+package org.example.keycloakdemo.service;
+
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.model.DesiredState;
+import org.example.keycloakdemo.model.DesiredUser;
+import org.example.keycloakdemo.model.ReconcileActionStatus;
+import org.example.keycloakdemo.model.ReconcileActionType;
+import org.example.keycloakdemo.model.ReconcileResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReconciliationServiceTest {
+
+    @Mock
+    private KeyCloakService keyCloakService;
+
+    private ReconciliationService reconciliationService;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        reconciliationService = new ReconciliationService(keyCloakService, new KeycloakProperties());
+
+        when(keyCloakService.getKeycloakToken()).thenReturn(Mono.just("token"));
+        when(keyCloakService.listUsers("token")).thenReturn(Flux.just(
+                Map.of("id", "aliceId", "username", "alice", "email", "alice@example.com"),
+                Map.of("id", "bobId", "username", "bob", "email", "old@example.com")));
+        when(keyCloakService.refreshGroupHierarchy("token")).thenReturn(Mono.just(GroupSnapshot.of(List.of(
+                Map.of("id", "devsId", "name", "devs", "path", "/devs")))));
+        when(keyCloakService.getGroupMemberIds("token", "devsId")).thenReturn(Mono.just(Set.of("aliceId")));
+    }
+
+    @Test
+    void testReconcile_DryRunPlansOnlyDifferences() {
+        DesiredState desiredState = new DesiredState(List.of(
+                new DesiredUser("alice", "alice@example.com", List.of("devs")),
+                new DesiredUser("bob", "bob@example.com", List.of("devs")),
+                new DesiredUser("carol", "carol@example.com", List.of("ops"))));
+
+        ReconcileResponse response = reconciliationService.reconcile(desiredState, true).block();
+
+        assertTrue(response.isDryRun());
+        assertEquals(1L, response.getSummary().get(ReconcileActionType.CREATE_GROUP));
+        assertEquals(1L, response.getSummary().get(ReconcileActionType.CREATE_USER));
+        assertEquals(1L, response.getSummary().get(ReconcileActionType.UPDATE_EMAIL));
+        assertEquals(2L, response.getSummary().get(ReconcileActionType.ADD_MEMBERSHIP));
+        assertTrue(response.getActions().stream().allMatch(action -> action.getStatus() == ReconcileActionStatus.PLANNED));
+
+        verify(keyCloakService, never()).createUser(anyString(), anyString(), anyString());
+        verify(keyCloakService, never()).createGroup(anyString(), anyString());
+        verify(keyCloakService, never()).assignUserToGroup(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testReconcile_NothingToDo() {
+        DesiredState desiredState = new DesiredState(List.of(
+                new DesiredUser("Alice", "alice@example.com", List.of("devs"))));
+
+        ReconcileResponse response = reconciliationService.reconcile(desiredState, false).block();
+
+        assertTrue(response.getActions().isEmpty());
+        verify(keyCloakService, never()).assignUserToGroup(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testReconcile_MembershipOfUncreatableUserFailsAtPlanning() {
+        DesiredState desiredState = new DesiredState(List.of(
+                new DesiredUser("dave", null, List.of("devs"))));
+
+        ReconcileResponse response = reconciliationService.reconcile(desiredState, true).block();
+
+        assertEquals(2, response.getActions().size());
+        assertTrue(response.getActions().stream().allMatch(action -> action.getStatus() == ReconcileActionStatus.FAILED));
+    }
+
+    @Test
+    void testReconcile_AppliesPhasesInOrder() {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        when(keyCloakService.createGroup("ops", "token")).thenReturn(Mono.fromCallable(() -> {
+            calls.add("createGroup");
+            return "opsId";
+        }));
+        when(keyCloakService.createUser("carol", "carol@example.com", "token")).thenReturn(Mono.fromCallable(() -> {
+            calls.add("createUser");
+            return "carolId";
+        }));
+        when(keyCloakService.updateUserEmail("bobId", "bob@example.com", "token")).thenReturn(Mono.fromRunnable(() -> calls.add("updateUserEmail")));
+        when(keyCloakService.assignUserToGroup("carolId", "opsId", "token")).thenReturn(Mono.fromRunnable(() -> calls.add("assignUserToGroup")));
+        when(keyCloakService.assignUserToGroup("carolId", "devsId", "token")).thenReturn(Mono.fromRunnable(() -> calls.add("assignUserToGroup")));
+
+        ReconcileResponse response = reconciliationService.reconcile(new DesiredState(List.of(
+                new DesiredUser("bob", "bob@example.com", List.of()),
+                new DesiredUser("carol", "carol@example.com", List.of("ops", "devs")))), false).block();
+
+        assertEquals(List.of("createGroup", "createUser", "updateUserEmail", "assignUserToGroup", "assignUserToGroup"), calls);
+        assertTrue(response.getActions().stream().allMatch(action -> action.getStatus() == ReconcileActionStatus.APPLIED));
+        verify(keyCloakService, never()).getUserId(anyString(), anyString());
+        verify(keyCloakService, never()).refreshUserId(anyString(), anyString());
+        verify(keyCloakService, never()).getGroupId(anyString(), anyString());
+    }
+
+    @Test
+    void testReconcile_LooksUpCreatedUserWithoutLocation() {
+        when(keyCloakService.createUser("carol", "carol@example.com", "token")).thenReturn(Mono.empty());
+        when(keyCloakService.refreshUserId("token", "carol")).thenReturn(Mono.just("carolId"));
+        when(keyCloakService.assignUserToGroup("carolId", "devsId", "token")).thenReturn(Mono.empty());
+
+        ReconcileResponse response = reconciliationService.reconcile(new DesiredState(List.of(
+                new DesiredUser("carol", "carol@example.com", List.of("devs")))), false).block();
+
+        assertTrue(response.getActions().stream().allMatch(action -> action.getStatus() == ReconcileActionStatus.APPLIED));
+        verify(keyCloakService).refreshUserId("token", "carol");
+        verify(keyCloakService, never()).getGroupId(anyString(), anyString());
+    }
+
+    @Test
+    void testReconcile_FailedPhaseDoesNotAbortTheRest() {
+        when(keyCloakService.createGroup("ops", "token")).thenReturn(Mono.error(new IllegalStateException("Keycloak unavailable")));
+        when(keyCloakService.createUser("carol", "carol@example.com", "token")).thenReturn(Mono.empty());
+        when(keyCloakService.refreshUserId("token", "carol")).thenReturn(Mono.just("carolId"));
+        when(keyCloakService.updateUserEmail("bobId", "bob@example.com", "token")).thenReturn(Mono.empty());
+        when(keyCloakService.assignUserToGroup("carolId", "devsId", "token")).thenReturn(Mono.empty());
+
+        ReconcileResponse response = reconciliationService.reconcile(new DesiredState(List.of(
+                new DesiredUser("bob", "bob@example.com", List.of()),
+                new DesiredUser("carol", "carol@example.com", List.of("ops", "devs")))), false).block();
+
+        Map<ReconcileActionType, ReconcileActionStatus> statuses = new EnumMap<>(ReconcileActionType.class);
+        response.getActions().stream()
+                .filter(action -> !"ops".equals(action.getGroupName()) || action.getType() == ReconcileActionType.CREATE_GROUP)
+                .forEach(action -> statuses.put(action.getType(), action.getStatus()));
+
+        assertEquals(ReconcileActionStatus.FAILED, statuses.get(ReconcileActionType.CREATE_GROUP));
+        assertEquals(ReconcileActionStatus.APPLIED, statuses.get(ReconcileActionType.CREATE_USER));
+        assertEquals(ReconcileActionStatus.APPLIED, statuses.get(ReconcileActionType.UPDATE_EMAIL));
+        assertEquals(ReconcileActionStatus.APPLIED, statuses.get(ReconcileActionType.ADD_MEMBERSHIP));
+        verify(keyCloakService).assignUserToGroup("carolId", "devsId", "token");
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.keycloakdemo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.example.keycloakdemo.config.IdCacheProperties;
+import org.example.keycloakdemo.config.KeycloakProperties;
+import org.example.keycloakdemo.config.SchedulerProperties;
+import org.example.keycloakdemo.handler.ErrorLogLimiter;
+import org.example.keycloakdemo.handler.KeycloakException;
+import org.example.keycloakdemo.model.IdLookupResponse;
+import org.example.keycloakdemo.model.UserGroupRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A user that was deleted and recreated keeps its username but gets a new ID; the cached ID must be
+ * replaced on the first 404 instead of failing every later call.
+ */
+public class StaleUserIdTest {
+
+    @TempDir
+    Path directory;
+
+    private MockWebServer mockWebServer;
+    private PersistentIdCache idCache;
+    private KeyCloakService keyCloakService;
+    private VirtualThreadKeyCloakService virtualThreadKeyCloakService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.contains("/protocol/openid-connect/token")) {
+                    return json("{\"access_token\":\"token\"}");
+                }
+                if (path.startsWith("/admin/realms/master/users?username=alice")) {
+                    return json("[{\"id\":\"aliceId\",\"username\":\"alice\"}]");
+                }
+                if (path.startsWith("/admin/realms/master/groups?")) {
+                    return json("[{\"id\":\"devsId\",\"name\":\"devs\",\"path\":\"/devs\"}]");
+                }
+                if (path.equals("/admin/realms/master/users/aliceId/groups/devsId")) {
+                    return new MockResponse().setResponseCode(204);
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        mockWebServer.start();
+
+        KeycloakProperties keycloakProperties = new KeycloakProperties();
+        keycloakProperties.setUrl(mockWebServer.url("/").toString().replaceAll("/$", ""));
+        keycloakProperties.setRealm("master");
+        keycloakProperties.setClientId("admin-cli");
+        keycloakProperties.setAdminUsername("admin");
+        keycloakProperties.setAdminPassword("admin");
+
+        IdCacheProperties idCacheProperties = new IdCacheProperties();
+        idCacheProperties.setEnabled(true);
+        idCacheProperties.setDirectory(directory.toString());
+        idCache = new PersistentIdCache(idCacheProperties, keycloakProperties);
+        idCache.put(PersistentIdCache.Kind.USER, "alice", "staleId");
+
+        ErrorLogLimiter errorLog = new ErrorLogLimiter();
+        KeycloakCallScheduler callScheduler = new KeycloakCallScheduler(new SchedulerProperties(), new SimpleMeterRegistry());
+        keyCloakService = new KeyCloakService(WebClient.builder(), keycloakProperties, errorLog, idCache, callScheduler);
+        virtualThreadKeyCloakService = new VirtualThreadKeyCloakService(RestClient.builder(), keyCloakService, keycloakProperties,
+                errorLog, idCache, callScheduler);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        virtualThreadKeyCloakService.close();
+        idCache.close();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void testWithUserId_ReplacesStaleCachedId() {
+        String userId = keyCloakService.withUserId("token", "alice",
+                id -> keyCloakService.assignUserToGroup(id, "devsId", "token").thenReturn(id)).block();
+
+        assertEquals("aliceId", userId);
+        assertEquals("aliceId", idCache.get(PersistentIdCache.Kind.USER, "alice"));
+    }
+
+    @Test
+    void testWithUserId_KeepsCurrentIdOnUnrelated404() {
+        idCache.put(PersistentIdCache.Kind.USER, "alice", "aliceId");
+
+        KeycloakException error = assertThrows(KeycloakException.class, () -> keyCloakService.withUserId("token", "alice",
+                id -> keyCloakService.assignUserToGroup(id, "deletedGroupId", "token")).block());
+
+        assertEquals(404, error.getStatus());
+        assertEquals("aliceId", idCache.get(PersistentIdCache.Kind.USER, "alice"));
+    }
+
+    @Test
+    void testLookupIds_IgnoresStaleCachedId() {
+        IdLookupResponse response = keyCloakService.lookupIds("token", List.of("alice"), List.of()).block();
+
+        assertEquals("aliceId", response.getUsers().get("alice"));
+        assertEquals("aliceId", idCache.get(PersistentIdCache.Kind.USER, "alice"));
+    }
+
+    @Test
+    void testVirtualThreads_ReplacesStaleCachedId() {
+        String result = virtualThreadKeyCloakService.createUserAndAssignGroup(new UserGroupRequest("alice", "alice@example.com", "devs"));
+
+        assertEquals("User with ID: aliceId assigned to existing group with ID: devsId.", result);
+        assertEquals("aliceId", idCache.get(PersistentIdCache.Kind.USER, "alice"));
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse()
+                .setResponseCode(200)
+                .setBody(body)
+                .addHeader("Content-Type", "application/json");
+    }
+}